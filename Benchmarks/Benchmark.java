@@ -0,0 +1,101 @@
+package Benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Minimal benchmark harness.
+ *
+ * Runs an operation for a number of warmup and measured iterations and reports the
+ * throughput (operations per second) and the heap allocated per operation, taken from
+ * the JVM's per-thread allocation counter (the same counter JMH's GC profiler reads).
+ *
+ * Results are printed one per line so runs can be diffed or pasted into a spreadsheet.
+ */
+public class Benchmark {
+
+    /**
+     * One iteration of a benchmark.  Returns the number of operations it performed.
+     */
+    public interface Body {
+        long run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    //Accumulates results so the JIT cannot remove the work being measured
+    private static long blackhole;
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+
+
+    /**
+     * Constructs a harness
+     *
+     * @param warmupIterations iterations run before measuring, to let the JIT compile the code
+     * @param measuredIterations iterations that are timed
+     */
+    public Benchmark(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    /**
+     * Runs and reports a benchmark
+     *
+     * @param name name printed with the results
+     * @param body the operation to measure
+     * @throws Exception if the body throws
+     */
+    public void run(String name, Body body) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            body.run();
+        }
+        System.gc();
+
+        long threadId = Thread.currentThread().getId();
+        long ops = 0;
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredIterations; i++) {
+            ops += body.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        report(name, ops, elapsed, allocated);
+    }
+
+    /**
+     * Prints one result line
+     *
+     * @param name name of the benchmark
+     * @param ops number of operations performed
+     * @param elapsedNanos time it took
+     * @param allocatedBytes heap allocated while measuring, or -1 if unknown
+     */
+    public static void report(String name, long ops, long elapsedNanos, long allocatedBytes) {
+        double opsPerSecond = ops / (elapsedNanos / 1e9);
+        String allocation = allocatedBytes < 0 ? "n/a" : String.format("%.2f", (double) allocatedBytes / ops);
+        System.out.printf("%-60s %15.0f ops/s %12s B/op%n", name, opsPerSecond, allocation);
+    }
+
+    /**
+     * Keeps a value alive so the work that produced it is not optimized away
+     *
+     * @param value value to consume
+     */
+    public static void consume(long value) {
+        blackhole += value;
+    }
+
+    /**
+     * Returns the accumulated value of everything consumed, to print at the end of a run
+     *
+     * @return the blackhole value
+     */
+    public static long blackhole() {
+        return blackhole;
+    }
+}
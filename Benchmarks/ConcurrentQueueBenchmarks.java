@@ -0,0 +1,209 @@
+package Benchmarks;
+
+import CommonUtils.BetterQueue;
+import CommonUtils.BetterQueueInterface;
+import CommonUtils.ConcurrentBetterQueue;
+import CommonUtils.UnboundedConcurrentBetterQueue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded benchmarks for the concurrent queues.
+ *
+ * For each thread count p, p producer threads each add n / p items while p consumer threads
+ * remove them, and the total number of items moved through the queue per second is reported.
+ * The queues compared are:
+ *   - ConcurrentBetterQueue (bounded, lock-free ring buffer)
+ *   - UnboundedConcurrentBetterQueue (unbounded, lock-free linked segments)
+ *   - BetterQueue behind a single global lock, which is what the game server did before
+ *   - java.util.concurrent.ConcurrentLinkedQueue
+ *
+ * Allocation is not reported, since the work happens on threads other than the one measuring.
+ *
+ * Usage: java Benchmarks.ConcurrentQueueBenchmarks [n] [max threads per side]
+ */
+public class ConcurrentQueueBenchmarks {
+
+    //Capacity of the bounded queue
+    private static final int CAPACITY = 1 << 14;
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    //Elements are boxed once up front so boxing is not part of what is measured
+    private static Integer[] values;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run("ConcurrentBetterQueue", threads, n, () -> new ConcurrentBetterQueue<>(CAPACITY));
+            run("UnboundedConcurrentBetterQueue", threads, n, UnboundedConcurrentBetterQueue::new);
+            run("BetterQueue (global lock)", threads, n, LockedQueue::new);
+            run("ConcurrentLinkedQueue", threads, n, JdkQueue::new);
+        }
+
+        System.out.println("(blackhole " + Benchmark.blackhole() + ")");
+    }
+
+    /**
+     * Runs and reports one benchmark
+     */
+    private static void run(String name, int threads, int n, Supplier<BetterQueueInterface<Integer>> queues) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            producersAndConsumers(queues.get(), threads, n);
+        }
+        System.gc();
+
+        long ops = 0;
+        long elapsed = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            elapsed += producersAndConsumers(queues.get(), threads, n);
+            ops += n;
+        }
+        Benchmark.report(name + " " + threads + "P/" + threads + "C", ops, elapsed, -1);
+    }
+
+    /**
+     * Moves n items through the queue with the given number of producers and consumers
+     *
+     * @return the time it took in nanoseconds
+     */
+    private static long producersAndConsumers(BetterQueueInterface<Integer> queue, int threads, int n) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[2 * threads];
+        long[] sums = new long[threads];
+
+        for (int p = 0; p < threads; p++) {
+            int from = (int) ((long) n * p / threads);
+            int to = (int) ((long) n * (p + 1) / threads);
+            workers[p] = new Thread(() -> {
+                await(start);
+                for (int i = from; i < to; i++) {
+                    queue.add(values[i]);
+                }
+            });
+        }
+        for (int c = 0; c < threads; c++) {
+            int consumer = c;
+            int count = (int) ((long) n * (c + 1) / threads) - (int) ((long) n * c / threads);
+            workers[threads + c] = new Thread(() -> {
+                await(start);
+                long sum = 0;
+                int removed = 0;
+                while (removed < count) {
+                    Integer item = queue.remove();
+                    if (item == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    sum += item;
+                    removed++;
+                }
+                sums[consumer] = sum;
+            });
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        for (long sum : sums) {
+            Benchmark.consume(sum);
+        }
+        return elapsed;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * BetterQueue with every operation behind one lock
+     */
+    private static class LockedQueue implements BetterQueueInterface<Integer> {
+        private final BetterQueue<Integer> queue = new BetterQueue<>();
+
+        @Override
+        public synchronized void add(Integer item) {
+            queue.add(item);
+        }
+
+        @Override
+        public synchronized Integer peek() {
+            return queue.peek();
+        }
+
+        @Override
+        public synchronized Integer remove() {
+            return queue.remove();
+        }
+
+        @Override
+        public synchronized int size() {
+            return queue.size();
+        }
+
+        @Override
+        public synchronized boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        public void draw(java.awt.Graphics g) {
+        }
+    }
+
+    /**
+     * ConcurrentLinkedQueue behind the BetterQueueInterface, as a baseline
+     */
+    private static class JdkQueue implements BetterQueueInterface<Integer> {
+        private final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void add(Integer item) {
+            queue.add(item);
+        }
+
+        @Override
+        public Integer peek() {
+            return queue.peek();
+        }
+
+        @Override
+        public Integer remove() {
+            return queue.poll();
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        public void draw(java.awt.Graphics g) {
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package Benchmarks;
+
+import CommonUtils.BetterStack;
+import CommonUtils.BetterStackInterface;
+import CommonUtils.ConcurrentBetterStack;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded benchmarks for the concurrent stack.
+ *
+ * For each thread count p, p threads share one stack and each does n / p push+pop pairs,
+ * the worst case for contention on the top.  The number of push+pop pairs per second is reported.
+ * The stacks compared are:
+ *   - ConcurrentBetterStack (lock-free, with elimination)
+ *   - BetterStack behind a single global lock (a synchronized wrapper)
+ *   - java.util.concurrent.ConcurrentLinkedDeque
+ *
+ * Allocation is not reported, since the work happens on threads other than the one measuring.
+ *
+ * Usage: java Benchmarks.ConcurrentStackBenchmarks [n] [max threads]
+ */
+public class ConcurrentStackBenchmarks {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    //Elements are boxed once up front so boxing is not part of what is measured
+    private static Integer[] values;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run("ConcurrentBetterStack", threads, n, ConcurrentBetterStack::new);
+            run("BetterStack (global lock)", threads, n, LockedStack::new);
+            run("ConcurrentLinkedDeque", threads, n, JdkStack::new);
+        }
+
+        System.out.println("(blackhole " + Benchmark.blackhole() + ")");
+    }
+
+    /**
+     * Runs and reports one benchmark
+     */
+    private static void run(String name, int threads, int n, Supplier<BetterStackInterface<Integer>> stacks) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            pushPopPairs(stacks.get(), threads, n);
+        }
+        System.gc();
+
+        long ops = 0;
+        long elapsed = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            elapsed += pushPopPairs(stacks.get(), threads, n);
+            ops += n;
+        }
+        Benchmark.report(name + " " + threads + " threads push+pop", ops, elapsed, -1);
+    }
+
+    /**
+     * Does n push+pop pairs spread over the given number of threads.  Every thread pushes
+     * before it pops, so the stack is never empty when a thread pops.
+     *
+     * @return the time it took in nanoseconds
+     */
+    private static long pushPopPairs(BetterStackInterface<Integer> stack, int threads, int n) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long[] sums = new long[threads];
+
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            int from = (int) ((long) n * t / threads);
+            int to = (int) ((long) n * (t + 1) / threads);
+            workers[t] = new Thread(() -> {
+                await(start);
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    stack.push(values[i]);
+                    sum += stack.pop();
+                }
+                sums[worker] = sum;
+            });
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        for (long sum : sums) {
+            Benchmark.consume(sum);
+        }
+        return elapsed;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * BetterStack with every operation behind one lock
+     */
+    private static class LockedStack implements BetterStackInterface<Integer> {
+        private final BetterStack<Integer> stack = new BetterStack<>();
+
+        @Override
+        public synchronized void push(Integer item) {
+            stack.push(item);
+        }
+
+        @Override
+        public synchronized Integer pop() {
+            return stack.pop();
+        }
+
+        @Override
+        public synchronized Integer peek() {
+            return stack.peek();
+        }
+
+        @Override
+        public synchronized boolean isEmpty() {
+            return stack.isEmpty();
+        }
+
+        @Override
+        public synchronized int size() {
+            return stack.size();
+        }
+
+        @Override
+        public void draw(java.awt.Graphics g) {
+        }
+    }
+
+    /**
+     * ConcurrentLinkedDeque behind the BetterStackInterface, as a baseline
+     */
+    private static class JdkStack implements BetterStackInterface<Integer> {
+        private final ConcurrentLinkedDeque<Integer> stack = new ConcurrentLinkedDeque<>();
+
+        @Override
+        public void push(Integer item) {
+            stack.push(item);
+        }
+
+        @Override
+        public Integer pop() {
+            return stack.pop();
+        }
+
+        @Override
+        public Integer peek() {
+            return stack.element();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return stack.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return stack.size();
+        }
+
+        @Override
+        public void draw(java.awt.Graphics g) {
+        }
+    }
+}
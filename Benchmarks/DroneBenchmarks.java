@@ -0,0 +1,268 @@
+package Benchmarks;
+
+import Drones.CleanSwordManager;
+import Drones.CleanSwordManagerInterface;
+import Drones.CleanSwordTimesTable;
+import Drones.CleanSwordTimesWriter;
+import Drones.DroneBatchRunner;
+import Drones.ItemRequestManager;
+import Drones.ItemRequestManagerInterface;
+import Drones.ItemRetrievalTimesTable;
+import Drones.ItemRetrievalTimesWriter;
+import Drones.SimulationResultCache;
+import Drones.TraceConverter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * End-to-end benchmarks of CleanSwordManager.getCleaningTimes and ItemRequestManager.getRetrievalTimes
+ * on generated input files.  One operation is one request, so ops/s is requests processed per second
+ * including parsing, simulating and building the results.
+ *
+ * Writing the results to a file is measured both the usual way (the result list, one toString()
+ * per row) and through the result writers, in text and binary.
+ *
+ * The text inputs are also converted to binary traces (see Drones.TraceConverter), to compare
+ * loading the compact format with parsing decimal text.
+ *
+ * Repeated runs of the same input are measured through SimulationResultCache, answered from memory
+ * and from its disk directory.
+ *
+ * A batch of smaller files is also run one file after another and through DroneBatchRunner,
+ * to show how the batch runner scales with the number of cores.
+ *
+ * Usage: java Benchmarks.DroneBenchmarks [comma separated request counts] [directory for input files]
+ */
+public class DroneBenchmarks {
+
+    //Batch benchmark: number of files and requests per file
+    private static final int BATCH_FILES = 64;
+    private static final int BATCH_FILE_SIZE = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        String sizes = args.length > 0 ? args[0] : "10000,100000,1000000,10000000";
+        File dir = args.length > 1 ? new File(args[1]) : Files.createTempDirectory("drone-bench").toFile();
+        dir.mkdirs();
+
+        for (String size : sizes.split(",")) {
+            int numRequests = Integer.parseInt(size.trim());
+            String cleanFile = generate(dir, "clean", numRequests);
+            String retrieveFile = generate(dir, "retrieve", numRequests);
+            String cleanBinaryFile = convert(cleanFile, "clean");
+            String retrieveBinaryFile = convert(retrieveFile, "retrieve");
+
+            //Fewer iterations for the big files so a full run stays in the minutes
+            Benchmark bench = numRequests >= 1_000_000 ? new Benchmark(1, 3) : new Benchmark(5, 10);
+
+            bench.run("getCleaningTimes (list) " + numRequests, () -> {
+                Benchmark.consume(new CleanSwordManager().getCleaningTimes(cleanFile).size());
+                return numRequests;
+            });
+            bench.run("getCleaningTimes (table) " + numRequests, () -> {
+                CleanSwordTimesTable table = new CleanSwordTimesTable();
+                new CleanSwordManager().getCleaningTimes(cleanFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getCleaningTimesStreaming (table) " + numRequests, () -> {
+                CleanSwordTimesTable table = new CleanSwordTimesTable();
+                new CleanSwordManager().getCleaningTimesStreaming(cleanFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getCleaningTimesPipelined (table) " + numRequests, () -> {
+                CleanSwordTimesTable table = new CleanSwordTimesTable();
+                new CleanSwordManager().getCleaningTimesPipelined(cleanFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getCleaningTimesParallel (table) " + numRequests, () -> {
+                CleanSwordTimesTable table = new CleanSwordTimesTable();
+                new CleanSwordManager().getCleaningTimesParallel(cleanFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getCleaningTimes binary trace (table) " + numRequests, () -> {
+                CleanSwordTimesTable table = new CleanSwordTimesTable();
+                new CleanSwordManager().getCleaningTimes(cleanBinaryFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getRetrievalTimes (list) " + numRequests, () -> {
+                Benchmark.consume(new ItemRequestManager().getRetrievalTimes(retrieveFile).size());
+                return numRequests;
+            });
+            bench.run("getRetrievalTimes (table) " + numRequests, () -> {
+                ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+                new ItemRequestManager().getRetrievalTimes(retrieveFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getRetrievalTimesPipelined (table) " + numRequests, () -> {
+                ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+                new ItemRequestManager().getRetrievalTimesPipelined(retrieveFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+            bench.run("getRetrievalTimes binary trace (table) " + numRequests, () -> {
+                ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+                new ItemRequestManager().getRetrievalTimes(retrieveBinaryFile, table);
+                Benchmark.consume(table.size());
+                return numRequests;
+            });
+
+            //Repeated runs of the same input, answered by the cache
+            SimulationResultCache cache = new SimulationResultCache(1L << 30, false);
+            cache.getCleaningTimes(cleanFile);
+            bench.run("SimulationResultCache hit getCleaningTimes (list) " + numRequests, () -> {
+                Benchmark.consume(cache.getCleaningTimes(cleanFile).size());
+                return numRequests;
+            });
+            String cacheDir = new File(dir, "result-cache").getPath();
+            new SimulationResultCache(0, false, cacheDir, SimulationResultCache.DEFAULT_MAX_DISK_BYTES).getCleaningTimes(cleanFile);
+            bench.run("SimulationResultCache disk hit getCleaningTimes (list) " + numRequests, () -> {
+                SimulationResultCache diskOnly = new SimulationResultCache(0, false, cacheDir, SimulationResultCache.DEFAULT_MAX_DISK_BYTES);
+                Benchmark.consume(diskOnly.getCleaningTimes(cleanFile).size());
+                return numRequests;
+            });
+
+            //Writing the results to a file
+            String outputFile = new File(dir, "output").getPath();
+            bench.run("getCleaningTimes + toString per row to file " + numRequests, () -> {
+                try (BufferedWriter out = new BufferedWriter(new FileWriter(outputFile), 1 << 16)) {
+                    for (CleanSwordManagerInterface.CleanSwordTimes row : new CleanSwordManager().getCleaningTimes(cleanFile)) {
+                        out.write(row.toString());
+                        out.newLine();
+                    }
+                }
+                return numRequests;
+            });
+            bench.run("getCleaningTimes to CleanSwordTimesWriter (text) " + numRequests, () -> {
+                try (CleanSwordTimesWriter out = new CleanSwordTimesWriter(outputFile, false)) {
+                    new CleanSwordManager().getCleaningTimes(cleanFile, out);
+                }
+                return numRequests;
+            });
+            bench.run("getCleaningTimes to CleanSwordTimesWriter (binary) " + numRequests, () -> {
+                try (CleanSwordTimesWriter out = new CleanSwordTimesWriter(outputFile, true)) {
+                    new CleanSwordManager().getCleaningTimes(cleanFile, out);
+                }
+                return numRequests;
+            });
+            bench.run("getRetrievalTimes + toString per row to file " + numRequests, () -> {
+                try (BufferedWriter out = new BufferedWriter(new FileWriter(outputFile), 1 << 16)) {
+                    for (ItemRequestManagerInterface.ItemRetrievalTimes row : new ItemRequestManager().getRetrievalTimes(retrieveFile)) {
+                        out.write(row.toString());
+                        out.newLine();
+                    }
+                }
+                return numRequests;
+            });
+            bench.run("getRetrievalTimes to ItemRetrievalTimesWriter (text) " + numRequests, () -> {
+                try (ItemRetrievalTimesWriter out = new ItemRetrievalTimesWriter(outputFile, false)) {
+                    new ItemRequestManager().getRetrievalTimes(retrieveFile, out);
+                }
+                return numRequests;
+            });
+            bench.run("getRetrievalTimes to ItemRetrievalTimesWriter (binary) " + numRequests, () -> {
+                try (ItemRetrievalTimesWriter out = new ItemRetrievalTimesWriter(outputFile, true)) {
+                    new ItemRequestManager().getRetrievalTimes(retrieveFile, out);
+                }
+                return numRequests;
+            });
+        }
+
+        batch(dir);
+
+        System.out.println("(blackhole " + Benchmark.blackhole() + ")");
+    }
+
+    /**
+     * Runs a batch of files one after another and then with DroneBatchRunner.  One operation is one request.
+     */
+    private static void batch(File dir) throws Exception {
+        List<String> cleanFiles = new ArrayList<>();
+        List<String> retrieveFiles = new ArrayList<>();
+        for (int i = 0; i < BATCH_FILES; i++) {
+            cleanFiles.add(generate(dir, "clean", BATCH_FILE_SIZE, i));
+            retrieveFiles.add(generate(dir, "retrieve", BATCH_FILE_SIZE, i));
+        }
+        long requests = (long) BATCH_FILES * BATCH_FILE_SIZE;
+        Benchmark bench = new Benchmark(2, 5);
+
+        bench.run("getCleaningTimes sequential batch of " + BATCH_FILES, () -> {
+            for (String file : cleanFiles) {
+                CleanSwordTimesTable table = new CleanSwordTimesTable();
+                new CleanSwordManager().getCleaningTimes(file, table);
+                Benchmark.consume(table.size());
+            }
+            return requests;
+        });
+        bench.run("DroneBatchRunner.getCleaningTimes batch of " + BATCH_FILES, () -> {
+            for (DroneBatchRunner.FileResult<CleanSwordTimesTable> result : new DroneBatchRunner().getCleaningTimes(cleanFiles)) {
+                Benchmark.consume(result.getResult().size());
+            }
+            return requests;
+        });
+        bench.run("getRetrievalTimes sequential batch of " + BATCH_FILES, () -> {
+            for (String file : retrieveFiles) {
+                ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+                new ItemRequestManager().getRetrievalTimes(file, table);
+                Benchmark.consume(table.size());
+            }
+            return requests;
+        });
+        bench.run("DroneBatchRunner.getRetrievalTimes batch of " + BATCH_FILES, () -> {
+            for (DroneBatchRunner.FileResult<ItemRetrievalTimesTable> result : new DroneBatchRunner().getRetrievalTimes(retrieveFiles)) {
+                Benchmark.consume(result.getResult().size());
+            }
+            return requests;
+        });
+    }
+
+    /**
+     * Generates an input file unless one of the same kind and size is already in dir
+     */
+    private static String generate(File dir, String kind, int numRequests) throws IOException {
+        return generate(dir, kind, numRequests, 0);
+    }
+
+    /**
+     * Converts a generated text input into a binary trace next to it, unless that is already there
+     */
+    private static String convert(String textFile, String kind) throws IOException {
+        File file = new File(textFile.substring(0, textFile.length() - ".txt".length()) + ".bin");
+        if (!file.exists()) {
+            if (kind.equals("clean")) {
+                TraceConverter.convertCleaningInput(textFile, file.getPath());
+            }
+            else {
+                TraceConverter.convertRetrievalInput(textFile, file.getPath());
+            }
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Generates the copy-th input file of a kind and size (each copy uses a different seed)
+     * unless it is already in dir
+     */
+    private static String generate(File dir, String kind, int numRequests, int copy) throws IOException {
+        File file = new File(dir, kind + "-" + numRequests + (copy == 0 ? "" : "-" + copy) + ".txt");
+        if (!file.exists()) {
+            if (kind.equals("clean")) {
+                InputGenerator.writeCleaningInput(file.getPath(), numRequests, 251 + copy);
+            }
+            else {
+                InputGenerator.writeRetrievalInput(file.getPath(), numRequests, 251 + copy);
+            }
+        }
+        return file.getPath();
+    }
+}
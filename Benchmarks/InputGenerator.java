@@ -0,0 +1,85 @@
+package Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Writes random input files for the drone managers in the same text format as the test files.
+ *
+ * Usage: java Benchmarks.InputGenerator clean|retrieve numRequests outputFile [seed]
+ */
+public class InputGenerator {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java Benchmarks.InputGenerator clean|retrieve numRequests outputFile [seed]");
+            System.exit(1);
+        }
+        int numRequests = Integer.parseInt(args[1]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 251;
+
+        if (args[0].equals("clean")) {
+            writeCleaningInput(args[2], numRequests, seed);
+        }
+        else {
+            writeRetrievalInput(args[2], numRequests, seed);
+        }
+    }
+
+    /**
+     * Writes a sword cleaning input: "n m t", then n cleaning durations and m request times, one per line.
+     * Three quarters of the swords get their own duration; the rest use the default t.
+     *
+     * @param filename file to write
+     * @param m number of requests
+     * @param seed seed for the random numbers
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCleaningInput(String filename, int m, long seed) throws IOException {
+        Random random = new Random(seed);
+        int n = m - m / 4;
+        int t = 5;
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            out.write(n + " " + m + " " + t + "\n");
+            for (int i = 0; i < n; i++) {
+                out.write(Integer.toString(1 + random.nextInt(10)));
+                out.write('\n');
+            }
+            long time = 0;
+            for (int i = 0; i < m; i++) {
+                time += random.nextInt(12);
+                out.write(Long.toString(time));
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes an item retrieval input: "numRequests t" on the first line, then all request times on one line.
+     *
+     * @param filename file to write
+     * @param numRequests number of requests
+     * @param seed seed for the random numbers
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeRetrievalInput(String filename, int numRequests, long seed) throws IOException {
+        Random random = new Random(seed);
+        int t = 7;
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            out.write(numRequests + " " + t + "\n");
+            long time = 0;
+            for (int i = 0; i < numRequests; i++) {
+                time += random.nextInt(4 * t);
+                if (i > 0) {
+                    out.write(' ');
+                }
+                out.write(Long.toString(time));
+            }
+            out.write('\n');
+        }
+    }
+}
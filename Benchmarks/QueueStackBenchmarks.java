@@ -0,0 +1,271 @@
+package Benchmarks;
+
+import CommonUtils.BetterQueue;
+import CommonUtils.BetterQueueInterface;
+import CommonUtils.BetterStack;
+import CommonUtils.BetterStackInterface;
+import CommonUtils.CapacityPolicy;
+import CommonUtils.LongBetterQueue;
+import CommonUtils.LongBetterQueueInterface;
+import CommonUtils.OffHeapLongQueue;
+import CommonUtils.SegmentedBetterQueue;
+import CommonUtils.SegmentedBetterStack;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Benchmarks BetterQueue and BetterStack against ArrayDeque and LinkedList.
+ *
+ * Three access patterns are measured for each structure:
+ *   1. steady state: the structure holds a fixed number of elements and every
+ *      operation is one add (push) followed by one remove (pop)
+ *   2. grow then drain: add (push) n elements, then remove (pop) all of them
+ *   3. oscillating: the structure sits exactly at a resize boundary and every
+ *      operation is one add (push) followed by one remove (pop), which is the
+ *      worst case for a structure that grows and shrinks at the same size
+ *
+ * Grow then drain is also measured with the bulk operations (addAll/drainTo, pushAll/popN),
+ * and for the primitive long queues, on and off the heap.
+ *
+ * Finally, the slowest single add (push) while growing to n elements (the lowest over ten runs)
+ * is reported for the array and segmented structures: for an array structure it is the copy of the last resize, for a
+ * segmented one it should stay around the cost of allocating one chunk.
+ *
+ * Usage: java Benchmarks.QueueStackBenchmarks [n]
+ */
+public class QueueStackBenchmarks {
+
+    //Size of the structure in the steady state benchmark
+    private static final int STEADY_SIZE = 1000;
+
+    //BetterQueue and BetterStack grow when they reach this size and shrink again right below it
+    private static final int RESIZE_BOUNDARY = (1 << 10) - 1;
+
+    //Elements are boxed once up front so boxing is not part of what is measured
+    private static Integer[] values;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        values = new Integer[Math.max(n, RESIZE_BOUNDARY + 1)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        Benchmark bench = new Benchmark(5, 10);
+
+        bench.run("BetterQueue steady state add+remove", () -> steady(new BetterQueue<>(), STEADY_SIZE, n));
+        bench.run("ArrayDeque (queue) steady state add+remove", () -> steady(new ArrayDeque<>(), STEADY_SIZE, n));
+        bench.run("LinkedList (queue) steady state add+remove", () -> steady(new LinkedList<>(), STEADY_SIZE, n));
+        bench.run("SegmentedBetterQueue steady state add+remove", () -> steady(new SegmentedBetterQueue<>(), STEADY_SIZE, n));
+
+        bench.run("BetterQueue grow then drain", () -> growThenDrain(new BetterQueue<>(), n));
+        bench.run("ArrayDeque (queue) grow then drain", () -> growThenDrain(new ArrayDeque<>(), n));
+        bench.run("LinkedList (queue) grow then drain", () -> growThenDrain(new LinkedList<>(), n));
+        bench.run("SegmentedBetterQueue grow then drain", () -> growThenDrain(new SegmentedBetterQueue<>(), n));
+
+        bench.run("BetterQueue bulk addAll then drainTo", () -> bulkGrowThenDrain(new BetterQueue<>(), n));
+        bench.run("SegmentedBetterQueue bulk addAll then drainTo", () -> bulkGrowThenDrain(new SegmentedBetterQueue<>(), n));
+
+        bench.run("LongBetterQueue grow then drain", () -> growThenDrainLongs(new LongBetterQueue(), n));
+        bench.run("OffHeapLongQueue grow then drain", () -> {
+            try (OffHeapLongQueue queue = new OffHeapLongQueue()) {
+                return growThenDrainLongs(queue, n);
+            }
+        });
+
+        bench.run("BetterQueue oscillating at resize boundary", () -> steady(new BetterQueue<>(), RESIZE_BOUNDARY, n));
+        bench.run("BetterQueue (hysteresis) oscillating at resize boundary", () -> steady(new BetterQueue<>(CapacityPolicy.HYSTERESIS), RESIZE_BOUNDARY, n));
+        bench.run("ArrayDeque (queue) oscillating at resize boundary", () -> steady(new ArrayDeque<>(), RESIZE_BOUNDARY, n));
+        bench.run("LinkedList (queue) oscillating at resize boundary", () -> steady(new LinkedList<>(), RESIZE_BOUNDARY, n));
+        bench.run("SegmentedBetterQueue oscillating at resize boundary", () -> steady(new SegmentedBetterQueue<>(), RESIZE_BOUNDARY, n));
+
+        bench.run("BetterStack steady state push+pop", () -> steadyStack(new BetterStack<>(), STEADY_SIZE, n));
+        bench.run("ArrayDeque (stack) steady state push+pop", () -> steadyStack(new ArrayDeque<>(), STEADY_SIZE, n));
+        bench.run("LinkedList (stack) steady state push+pop", () -> steadyStack(new LinkedList<>(), STEADY_SIZE, n));
+        bench.run("SegmentedBetterStack steady state push+pop", () -> steadyStack(new SegmentedBetterStack<>(), STEADY_SIZE, n));
+
+        bench.run("BetterStack grow then drain", () -> growThenDrainStack(new BetterStack<>(), n));
+        bench.run("ArrayDeque (stack) grow then drain", () -> growThenDrainStack(new ArrayDeque<>(), n));
+        bench.run("LinkedList (stack) grow then drain", () -> growThenDrainStack(new LinkedList<>(), n));
+        bench.run("SegmentedBetterStack grow then drain", () -> growThenDrainStack(new SegmentedBetterStack<>(), n));
+
+        bench.run("BetterStack bulk pushAll then popN", () -> bulkGrowThenDrainStack(new BetterStack<>(), n));
+        bench.run("SegmentedBetterStack bulk pushAll then popN", () -> bulkGrowThenDrainStack(new SegmentedBetterStack<>(), n));
+
+        bench.run("BetterStack oscillating at resize boundary", () -> steadyStack(new BetterStack<>(), RESIZE_BOUNDARY, n));
+        bench.run("BetterStack (hysteresis) oscillating at resize boundary", () -> steadyStack(new BetterStack<>(CapacityPolicy.HYSTERESIS), RESIZE_BOUNDARY, n));
+        bench.run("ArrayDeque (stack) oscillating at resize boundary", () -> steadyStack(new ArrayDeque<>(), RESIZE_BOUNDARY, n));
+        bench.run("LinkedList (stack) oscillating at resize boundary", () -> steadyStack(new LinkedList<>(), RESIZE_BOUNDARY, n));
+        bench.run("SegmentedBetterStack oscillating at resize boundary", () -> steadyStack(new SegmentedBetterStack<>(), RESIZE_BOUNDARY, n));
+
+        //Lowest of several runs, so that JIT compilation and GC pauses in any one run do not count
+        long queueAdd = Long.MAX_VALUE, segmentedAdd = Long.MAX_VALUE;
+        long stackPush = Long.MAX_VALUE, segmentedPush = Long.MAX_VALUE;
+        for (int run = 0; run < 10; run++) {
+            queueAdd = Math.min(queueAdd, slowestAdd(new BetterQueue<>(), n));
+            segmentedAdd = Math.min(segmentedAdd, slowestAdd(new SegmentedBetterQueue<>(), n));
+            stackPush = Math.min(stackPush, slowestPush(new BetterStack<>(), n));
+            segmentedPush = Math.min(segmentedPush, slowestPush(new SegmentedBetterStack<>(), n));
+        }
+        System.out.println("BetterQueue slowest add: " + queueAdd + " ns");
+        System.out.println("SegmentedBetterQueue slowest add: " + segmentedAdd + " ns");
+        System.out.println("BetterStack slowest push: " + stackPush + " ns");
+        System.out.println("SegmentedBetterStack slowest push: " + segmentedPush + " ns");
+
+        System.out.println("(blackhole " + Benchmark.blackhole() + ")");
+    }
+
+    private static long steady(BetterQueueInterface<Integer> queue, int size, int ops) {
+        for (int i = 0; i < size; i++) {
+            queue.add(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < ops; i++) {
+            queue.add(values[i]);
+            sum += queue.remove();
+        }
+        Benchmark.consume(sum);
+        return ops;
+    }
+
+    private static long steady(Queue<Integer> queue, int size, int ops) {
+        for (int i = 0; i < size; i++) {
+            queue.add(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < ops; i++) {
+            queue.add(values[i]);
+            sum += queue.remove();
+        }
+        Benchmark.consume(sum);
+        return ops;
+    }
+
+    private static long steadyStack(BetterStackInterface<Integer> stack, int size, int ops) {
+        for (int i = 0; i < size; i++) {
+            stack.push(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < ops; i++) {
+            stack.push(values[i]);
+            sum += stack.pop();
+        }
+        Benchmark.consume(sum);
+        return ops;
+    }
+
+    private static long steadyStack(Deque<Integer> stack, int size, int ops) {
+        for (int i = 0; i < size; i++) {
+            stack.push(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < ops; i++) {
+            stack.push(values[i]);
+            sum += stack.pop();
+        }
+        Benchmark.consume(sum);
+        return ops;
+    }
+
+    private static long growThenDrain(BetterQueueInterface<Integer> queue, int n) {
+        for (int i = 0; i < n; i++) {
+            queue.add(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += queue.remove();
+        }
+        Benchmark.consume(sum);
+        return 2L * n;
+    }
+
+    private static long growThenDrain(Queue<Integer> queue, int n) {
+        for (int i = 0; i < n; i++) {
+            queue.add(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += queue.remove();
+        }
+        Benchmark.consume(sum);
+        return 2L * n;
+    }
+
+    private static long growThenDrainLongs(LongBetterQueueInterface queue, int n) {
+        for (int i = 0; i < n; i++) {
+            queue.add(i);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += queue.remove();
+        }
+        Benchmark.consume(sum);
+        return 2L * n;
+    }
+
+    private static long growThenDrainStack(BetterStackInterface<Integer> stack, int n) {
+        for (int i = 0; i < n; i++) {
+            stack.push(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += stack.pop();
+        }
+        Benchmark.consume(sum);
+        return 2L * n;
+    }
+
+    private static long growThenDrainStack(Deque<Integer> stack, int n) {
+        for (int i = 0; i < n; i++) {
+            stack.push(values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += stack.pop();
+        }
+        Benchmark.consume(sum);
+        return 2L * n;
+    }
+
+    private static long bulkGrowThenDrain(BetterQueueInterface<Integer> queue, int n) {
+        queue.addAll(values, 0, n);
+        Integer[] out = new Integer[n];
+        int drained = queue.drainTo(out, n);
+        Benchmark.consume(drained + out[n - 1]);
+        return 2L * n;
+    }
+
+    private static long bulkGrowThenDrainStack(BetterStackInterface<Integer> stack, int n) {
+        stack.pushAll(values, 0, n);
+        Integer[] out = new Integer[n];
+        int popped = stack.popN(out, n);
+        Benchmark.consume(popped + out[0]);
+        return 2L * n;
+    }
+
+    //Time of the slowest single add while growing to n elements, in nanoseconds
+    private static long slowestAdd(BetterQueueInterface<Integer> queue, int n) {
+        long slowest = 0;
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            queue.add(values[i]);
+            slowest = Math.max(slowest, System.nanoTime() - start);
+        }
+        Benchmark.consume(queue.size());
+        return slowest;
+    }
+
+    //Time of the slowest single push while growing to n elements, in nanoseconds
+    private static long slowestPush(BetterStackInterface<Integer> stack, int n) {
+        long slowest = 0;
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            stack.push(values[i]);
+            slowest = Math.max(slowest, System.nanoTime() - start);
+        }
+        Benchmark.consume(stack.size());
+        return slowest;
+    }
+}
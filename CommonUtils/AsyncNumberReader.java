@@ -0,0 +1,248 @@
+package CommonUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads the numbers of a text input file without blocking the calling thread, pushing each one to a
+ * NumberPushDecoder.Receiver as soon as the bytes holding it have arrived.
+ *
+ * The file is read through an AsynchronousFileChannel in BUFFER_SIZE slices, and up to READ_AHEAD
+ * slices are read ahead of the one being decoded, each into its own direct ByteBuffer.  When a slice
+ * arrives it is decoded on the given executor, and its buffer is reused to read the slice READ_AHEAD
+ * further on, so the disk keeps working while the receiver does.  The slices are decoded one at a time,
+ * in order, each one as a separate task on the executor, so the receiver is only ever called by one
+ * thread at a time, and sees everything done by the calls before (the executor must not run tasks on
+ * the thread that submits them, which would turn the chain of slices into a recursion).
+ *
+ * Everything that can go wrong (opening or reading the file, a badly formed number, the receiver running
+ * out of numbers or throwing) completes the returned future exceptionally instead of being thrown, and
+ * cancelling the future stops the reading at the next slice.  The file is closed either way.
+ *
+ * Binary traces (see BinaryTraceCursor) are not text.  If the file starts with their magic and a fallback
+ * is given, the fallback is run on an executor thread instead, and the future completes when it returns.
+ */
+public class AsyncNumberReader {
+
+    /**
+     * Size of each read in bytes.
+     */
+    public static final int BUFFER_SIZE = 1 << 16; // 64 KiB
+
+    /**
+     * Number of reads in flight ahead of the slice being decoded.
+     */
+    public static final int READ_AHEAD = 4;
+
+    /**
+     * Reads a file some other, blocking way, such as the binary trace path of a drone manager.
+     */
+    public interface Fallback {
+        /**
+         * Reads the file
+         *
+         * @throws IOException if the file cannot be read
+         */
+        void run() throws IOException;
+    }
+
+    private final AsynchronousFileChannel channel;
+    private final long fileSize;
+    private final NumberPushDecoder decoder;
+    private final Fallback fallback;
+    private final Executor executor;
+    private final CompletableFuture<Void> result;
+
+    //Slice k of the file is read into buffers[k % READ_AHEAD], and reads[k % READ_AHEAD] completes with
+    //it (null if slice k is past the end of the file)
+    private final ByteBuffer[] buffers;
+    private final CompletableFuture<ByteBuffer>[] reads;
+
+
+    @SuppressWarnings("unchecked")
+    private AsyncNumberReader(AsynchronousFileChannel channel, long fileSize, NumberPushDecoder.Receiver receiver,
+                              Fallback fallback, Executor executor, CompletableFuture<Void> result) {
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.decoder = new NumberPushDecoder(receiver);
+        this.fallback = fallback;
+        this.executor = executor;
+        this.result = result;
+        buffers = new ByteBuffer[READ_AHEAD];
+        reads = (CompletableFuture<ByteBuffer>[]) new CompletableFuture<?>[READ_AHEAD];
+    }
+
+    /**
+     * Starts reading a text file, without a fallback for binary traces (they fail with an IOException)
+     *
+     * @param filename file to read numbers from
+     * @param receiver receives the numbers, on executor threads
+     * @param executor runs the decoding and the receiver
+     * @return a future that completes once the receiver's end method has returned
+     */
+    public static CompletableFuture<Void> read(String filename, NumberPushDecoder.Receiver receiver, Executor executor) {
+        return read(filename, receiver, null, executor);
+    }
+
+    /**
+     * Starts reading a file.  The file is opened on an executor thread too, so this returns straight away.
+     *
+     * @param filename file to read numbers from
+     * @param receiver receives the numbers, on executor threads
+     * @param fallback reads the file instead if it is a binary trace, or null
+     * @param executor runs the decoding and the receiver (and the fallback)
+     * @return a future that completes once the receiver's end method (or the fallback) has returned
+     */
+    public static CompletableFuture<Void> read(String filename, NumberPushDecoder.Receiver receiver,
+                                               Fallback fallback, Executor executor) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            AsynchronousFileChannel channel = null;
+            try {
+                channel = AsynchronousFileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+                new AsyncNumberReader(channel, channel.size(), receiver, fallback, executor, result).start();
+            } catch (Throwable e) {
+                closeQuietly(channel);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Issues the first READ_AHEAD reads and waits for the first slice
+     */
+    private void start() {
+        for (int k = 0; k < READ_AHEAD; k++) {
+            buffers[k] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            issue(k);
+        }
+        step(0);
+    }
+
+    /**
+     * Starts reading slice k into its buffer
+     */
+    private void issue(long k) {
+        int slot = (int) (k % READ_AHEAD);
+        long position = k * BUFFER_SIZE;
+        if (position >= fileSize) {
+            reads[slot] = null;
+            return;
+        }
+
+        ByteBuffer buffer = buffers[slot];
+        buffer.clear();
+        buffer.limit((int) Math.min(BUFFER_SIZE, fileSize - position));
+        CompletableFuture<ByteBuffer> read = new CompletableFuture<>();
+        reads[slot] = read;
+        readFully(buffer, position, read);
+    }
+
+    /**
+     * Reads until the buffer is full or the file ends (a read may return fewer bytes than asked for),
+     * then completes read with the buffer, flipped
+     */
+    private void readFully(ByteBuffer buffer, long position, CompletableFuture<ByteBuffer> read) {
+        channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if (count < 0 || !buffer.hasRemaining()) {
+                    buffer.flip();
+                    read.complete(buffer);
+                }
+                else {
+                    readFully(buffer, position + count, read);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                read.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Once slice k has arrived, decodes it on the executor and moves on to slice k + 1
+     */
+    private void step(long k) {
+        CompletableFuture<ByteBuffer> read = reads[(int) (k % READ_AHEAD)];
+        if (read == null) {
+            finish();
+            return;
+        }
+
+        read.whenCompleteAsync((buffer, failure) -> {
+            if (result.isDone()) { //Cancelled
+                closeQuietly(channel);
+                return;
+            }
+            if (failure != null) {
+                fail(failure);
+                return;
+            }
+            try {
+                if (k == 0 && isBinaryTrace(buffer)) {
+                    runFallback();
+                    return;
+                }
+
+                boolean shortRead = buffer.limit() < Math.min(BUFFER_SIZE, fileSize - k * BUFFER_SIZE);
+                if (!decoder.feed(buffer) || shortRead) { //Receiver is done, or the file shrank
+                    finish();
+                    return;
+                }
+                issue(k + READ_AHEAD); //This slice's buffer has been consumed
+                step(k + 1);
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }, executor);
+    }
+
+    private static boolean isBinaryTrace(ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == BinaryTraceCursor.MAGIC;
+    }
+
+    private void runFallback() throws IOException {
+        closeQuietly(channel);
+        if (fallback == null) {
+            throw (new IOException("Binary traces cannot be read as text"));
+        }
+        fallback.run();
+        result.complete(null);
+    }
+
+    private void finish() {
+        try {
+            decoder.finish();
+            channel.close();
+            result.complete(null);
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        closeQuietly(channel);
+        result.completeExceptionally(e);
+    }
+
+    private static void closeQuietly(AsynchronousFileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Nothing more can be read from it either way
+        }
+    }
+}
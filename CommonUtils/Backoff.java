@@ -0,0 +1,40 @@
+package CommonUtils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waiting strategy for threads that poll a lock-free structure until it has room or data.
+ *
+ * A waiting thread first busy-spins (cheapest when the other side is only a few nanoseconds
+ * behind), then yields its core, and finally parks for short intervals so a stalled partner
+ * does not cost a whole core.
+ */
+final class Backoff {
+
+    private static final int SPIN_LIMIT = 1 << 6;
+    private static final int YIELD_LIMIT = SPIN_LIMIT + (1 << 4);
+    private static final long PARK_NANOS = 1L << 16; // ~65 us
+
+    private Backoff() {
+    }
+
+    /**
+     * Waits a little, longer the more times in a row the caller has had to wait
+     *
+     * @param spins number of times in a row the caller has waited so far
+     * @return the value to pass in next time
+     */
+    static int pause(int spins) {
+        if (spins < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        }
+        else if (spins < YIELD_LIMIT) {
+            Thread.yield();
+        }
+        else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return spins;
+        }
+        return spins + 1;
+    }
+}
@@ -1,6 +1,7 @@
 package CommonUtils;
 
 import java.awt.*;
+import java.util.Objects;
 
 /**
  * @implNote implement a queue using a circular array with initial capacity 8.
@@ -24,32 +25,15 @@ import java.awt.*;
 public class BetterQueue<E> implements BetterQueueInterface<E> {
 
     /**
-     * Initial size of queue.  Do not decrease capacity below this value.
+     * Decides the initial capacity and when the array grows or shrinks (see CapacityPolicy).
+     * The default policy starts at 8, doubles when full and halves when less than half full.
      */
-    private final int INIT_CAPACITY = 8;
-
-
-    /**
-     * If the array needs to increase in size, it should be increased to
-     * old capacity * INCREASE_FACTOR.
-     *
-     * If it cannot increase by that much (old capacity * INCREASE_FACTOR > max int),
-     * it should increase by CONSTANT_INCREMENT.
-     *
-     * If that can't be done either throw OutOfMemoryError()
-     *
-     */
-    private final int INCREASE_FACTOR = 2;
-    private final int CONSTANT_INCREMENT = 1 << 5; // 32
-
-
+    private final CapacityPolicy policy;
 
     /**
-     * If the number of elements stored is < capacity * DECREASE_FACTOR, it should decrease
-     * the capacity of the UDS to max(capacity * DECREASE_FACTOR, initial capacity).
-     *
+     * Never shrink below this capacity (the capacity the queue was created with).
      */
-    private final double DECREASE_FACTOR = 0.5;
+    private final int minCapacity;
 
 
     /**
@@ -81,14 +65,48 @@ public class BetterQueue<E> implements BetterQueueInterface<E> {
 
     private int capacity;
 
+    //Metrics published by enableMetrics, or null if there are none
+    private StructureMetrics metrics;
+
 
     /**
      * Constructs an empty queue
      */
-    @SuppressWarnings("unchecked")
     public BetterQueue(){
-        queue = (E[]) new Object[INIT_CAPACITY];
-        capacity = INIT_CAPACITY;
+        this(0, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty queue that can hold expectedSize items without growing
+     *
+     * @param expectedSize number of items the queue is expected to hold
+     */
+    public BetterQueue(int expectedSize){
+        this(expectedSize, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty queue that grows and shrinks according to policy
+     *
+     * @param policy decides when the backing array grows and shrinks
+     */
+    public BetterQueue(CapacityPolicy policy){
+        this(0, policy);
+    }
+
+    /**
+     * Constructs an empty queue that can hold expectedSize items without growing,
+     * and grows and shrinks according to policy.  It never shrinks below its initial capacity.
+     *
+     * @param expectedSize number of items the queue is expected to hold
+     * @param policy decides when the backing array grows and shrinks
+     */
+    @SuppressWarnings("unchecked")
+    public BetterQueue(int expectedSize, CapacityPolicy policy){
+        this.policy = policy;
+        capacity = policy.initialCapacity(expectedSize);
+        minCapacity = capacity;
+        queue = (E[]) new Object[capacity];
         head = 0;
         tail = 0;
     }
@@ -111,6 +129,9 @@ public class BetterQueue<E> implements BetterQueueInterface<E> {
         queue[tail] = item;
         tail = (tail + 1) % capacity;
 
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
+        }
     }
 
     /**
@@ -140,13 +161,107 @@ public class BetterQueue<E> implements BetterQueueInterface<E> {
         queue[head] = null;
         head = (head + 1) % capacity;
 
-        if ((capacity * DECREASE_FACTOR >= INIT_CAPACITY) && (size() < capacity * DECREASE_FACTOR)) {
-            queue = decreaseSize();
+        int newCapacity = policy.shrink(size(), capacity);
+        if (newCapacity < capacity && newCapacity >= minCapacity) {
+            queue = decreaseSize(newCapacity);
         }
 
         return item;
     }
 
+    /**
+     * Adds len items from src, starting at src[off], to the back of the queue in order.
+     *
+     * The queue grows at most once, and the items are copied in with at most two
+     * System.arraycopy calls (one on each side of the point where the circular array wraps).
+     *
+     * @param src array holding the items to add
+     * @param off index in src of the first item to add
+     * @param len number of items to add
+     * @throws NullPointerException if any of the items is null (nothing is added in that case)
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     */
+    @Override
+    public void addAll(E[] src, int off, int len) {
+
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw (new NullPointerException());
+            }
+        }
+
+        //The queue can hold at most capacity - 1 items
+        long needed = (long) size() + len + 1;
+        if (needed > capacity) {
+            int newCapacity = capacity;
+            while (needed > newCapacity) {
+                newCapacity = policy.grow(newCapacity);
+            }
+            queue = resize(newCapacity);
+        }
+
+        int first = Math.min(len, capacity - tail);
+        System.arraycopy(src, off, queue, tail, first);
+        System.arraycopy(src, off + first, queue, 0, len - first);
+        tail = (tail + len) % capacity;
+
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
+        }
+    }
+
+    /**
+     * Removes up to max items from the front of the queue and stores them in dst, in queue order,
+     * starting at dst[0].
+     *
+     * The items are copied out with at most two System.arraycopy calls, and the queue shrinks
+     * at most once.
+     *
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    @Override
+    public int drainTo(E[] dst, int max) {
+
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        int count = Math.min(max, size());
+        Objects.checkFromIndexSize(0, count, dst.length);
+
+        int first = Math.min(count, capacity - head);
+        System.arraycopy(queue, head, dst, 0, first);
+        System.arraycopy(queue, 0, dst, first, count - first);
+
+        //Drop references to the removed items so they can be garbage collected
+        clear(head, head + first);
+        clear(0, count - first);
+        head = (head + count) % capacity;
+
+        int newCapacity = capacity;
+        int next = policy.shrink(size(), newCapacity);
+        while (next < newCapacity && next >= minCapacity) {
+            newCapacity = next;
+            next = policy.shrink(size(), newCapacity);
+        }
+        if (newCapacity < capacity) {
+            queue = decreaseSize(newCapacity);
+        }
+
+        return count;
+    }
+
+    //Simple enough for the JIT to turn into a single memory fill
+    private void clear(int from, int to) {
+        for (int i = from; i < to; i++) {
+            queue[i] = null;
+        }
+    }
+
     /**
      * Returns the number of elements in the queue
      *
@@ -179,69 +294,52 @@ public class BetterQueue<E> implements BetterQueueInterface<E> {
         }
     }
 
-    private E[] increaseSize() {
-        E[] newQueue;
-        int j = 0;
-        int newCapacity;
-
-        if (capacity * INCREASE_FACTOR < 0) { //Check if capacity will overflow maximum integer value
-            if (capacity + CONSTANT_INCREMENT < 0) {
-                throw (new OutOfMemoryError());
-            }
-            newQueue = (E[]) new Object[capacity + CONSTANT_INCREMENT];
-            newCapacity = capacity + CONSTANT_INCREMENT;
-        }
-        else {
-            newQueue = (E[]) new Object[capacity * INCREASE_FACTOR];
-            newCapacity = capacity * INCREASE_FACTOR;
-        }
-        if (head > tail) {
-            for (int i = head; i < capacity; i++) {
-                newQueue[j++] = queue[i];
-            }
-            for (int i = 0; i < tail; i++) {
-                newQueue[j++] = queue[i];
-            }
-
-        }
-        else {
-            for (int i = head; i < tail; i++) {
-                newQueue[j++] = queue[i];
-            }
-
+    /**
+     * Publishes this queue's metrics (resizes, elements copied, peak size and footprint) under the
+     * given name, if metrics are enabled (see StructureMetrics); does nothing otherwise
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        if (StructureMetrics.ENABLED) {
+            metrics = StructureMetricsRegistry.register(name, "BetterQueue", 4, 1, capacity);
+            metrics.sized(size());
         }
-        tail = capacity - 1;
-        head = 0;
-        capacity = newCapacity;
-        queue = null;
+    }
 
-        return newQueue;
+    private E[] increaseSize() {
+        return resize(policy.grow(capacity));
     }
 
-    private E[] decreaseSize() {
+    private E[] decreaseSize(int newCapacity) {
+        return resize(newCapacity);
+    }
 
-        E[] newQueue = (E[]) new Object[(int) (capacity * DECREASE_FACTOR)];
-        int j = 0;
+    /**
+     * Moves the items into a new array of the given capacity, with the head at index 0.
+     * The live region is copied with at most two System.arraycopy calls.
+     */
+    @SuppressWarnings("unchecked")
+    private E[] resize(int newCapacity) {
+        StructureResizeEvent event = StructureResizeEvent.start("BetterQueue", capacity);
+        E[] newQueue = (E[]) new Object[newCapacity];
+        int size = size();
 
         if (head > tail) {
-            for (int i = head; i < capacity; i++) {
-                newQueue[j++] = queue[i];
-            }
-            for (int i = 0; i < tail; i++) {
-                newQueue[j++] = queue[i];
-            }
-
+            System.arraycopy(queue, head, newQueue, 0, capacity - head);
+            System.arraycopy(queue, 0, newQueue, capacity - head, tail);
         }
         else {
-            for (int i = head; i < tail; i++) {
-                newQueue[j++] = queue[i];
-            }
-
+            System.arraycopy(queue, head, newQueue, 0, size);
         }
-        capacity *= DECREASE_FACTOR;
-        queue = null;
-        tail = capacity - 1;
+        event.finish(newCapacity, size);
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.resized(newCapacity, size);
+        }
+        tail = size;
         head = 0;
+        capacity = newCapacity;
+        queue = null;
 
         return newQueue;
     }
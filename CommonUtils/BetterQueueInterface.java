@@ -1,5 +1,7 @@
 package CommonUtils;
 
+import java.util.Objects;
+
 /**
  * Interface for our new BetterQueue object.
  *
@@ -29,6 +31,43 @@ public interface BetterQueueInterface<E> {
      */
     E remove();
 
+    /**
+     * Adds len items from src, starting at src[off], to the back of the queue in order.
+     * By default this adds them one at a time; implementations may copy them in bulk.
+     * @param src array holding the items to add
+     * @param off index in src of the first item to add
+     * @param len number of items to add
+     * @throws NullPointerException if any of the items is null
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     */
+    default void addAll(E[] src, int off, int len) {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            add(src[i]);
+        }
+    }
+
+    /**
+     * Removes up to max items from the front of the queue and stores them in dst, in queue order,
+     * starting at dst[0].  By default this removes them one at a time; implementations may copy them in bulk.
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    default int drainTo(E[] dst, int max) {
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        int count = 0;
+        while (count < max && !isEmpty()) {
+            Objects.checkIndex(count, dst.length);
+            dst[count++] = remove();
+        }
+        return count;
+    }
+
     /**
      * Returns the number of elements in the queue
      * @return integer representing the number of elements in the queue
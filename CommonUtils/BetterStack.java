@@ -1,6 +1,7 @@
 package CommonUtils;
 
 import java.util.EmptyStackException;
+import java.util.Objects;
 
 /**
  * @implNote Implement a stack using an array with initial capacity 8.
@@ -17,30 +18,15 @@ import java.util.EmptyStackException;
 public class BetterStack<E> implements BetterStackInterface<E> {
 
     /**
-     * Initial size of stack.  Do not decrease capacity below this value.
+     * Decides the initial capacity and when the array grows or shrinks (see CapacityPolicy).
+     * The default policy starts at 8, doubles when full and halves when less than half full.
      */
-    private final int INIT_CAPACITY = 8;
+    private final CapacityPolicy policy;
 
     /**
-     * If the array needs to increase in size, it should be increased to
-     * old capacity * INCREASE_FACTOR.
-     *
-     * If it cannot increase by that much (old capacity * INCREASE_FACTOR > max int),
-     * it should increase by CONSTANT_INCREMENT.
-     *
-     * If that can't be done either throw OutOfMemoryError()
-     *
+     * Never shrink below this capacity (the capacity the stack was created with).
      */
-    private final int INCREASE_FACTOR = 2;
-    private final int CONSTANT_INCREMENT = 1 << 5; // 32
-
-
-    /**
-     * If the number of elements stored is < capacity * DECREASE_FACTOR, it should decrease
-     * the capacity of the UDS to max(capacity * DECREASE_FACTOR, initial capacity).
-     *
-     */
-    private final double DECREASE_FACTOR = 0.5;
+    private final int minCapacity;
 
 
     /**
@@ -51,14 +37,48 @@ public class BetterStack<E> implements BetterStackInterface<E> {
     private int capacity;
     private int tail;
 
+    //Metrics published by enableMetrics, or null if there are none
+    private StructureMetrics metrics;
+
 
     /**
      * Constructs an empty stack
      */
-    @SuppressWarnings("unchecked")
     public BetterStack(){
-        stack = (E[]) new Object[INIT_CAPACITY];
-        capacity = INIT_CAPACITY;
+        this(0, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty stack that can hold expectedSize items without growing
+     *
+     * @param expectedSize number of items the stack is expected to hold
+     */
+    public BetterStack(int expectedSize){
+        this(expectedSize, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty stack that grows and shrinks according to policy
+     *
+     * @param policy decides when the backing array grows and shrinks
+     */
+    public BetterStack(CapacityPolicy policy){
+        this(0, policy);
+    }
+
+    /**
+     * Constructs an empty stack that can hold expectedSize items without growing,
+     * and grows and shrinks according to policy.  It never shrinks below its initial capacity.
+     *
+     * @param expectedSize number of items the stack is expected to hold
+     * @param policy decides when the backing array grows and shrinks
+     */
+    @SuppressWarnings("unchecked")
+    public BetterStack(int expectedSize, CapacityPolicy policy){
+        this.policy = policy;
+        capacity = policy.initialCapacity(expectedSize);
+        minCapacity = capacity;
+        stack = (E[]) new Object[capacity];
         tail = 0;
     }
 
@@ -81,6 +101,10 @@ public class BetterStack<E> implements BetterStackInterface<E> {
         }
         stack[tail] = item;
         tail++;
+
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
+        }
     }
 
     /**
@@ -101,8 +125,9 @@ public class BetterStack<E> implements BetterStackInterface<E> {
         stack[tail - 1] = null;
         tail--;
 
-        if ((capacity * DECREASE_FACTOR >= INIT_CAPACITY) && (size() < capacity * DECREASE_FACTOR)) {
-            stack = decreaseSize();
+        int newCapacity = policy.shrink(size(), capacity);
+        if (newCapacity < capacity && newCapacity >= minCapacity) {
+            stack = decreaseSize(newCapacity);
         }
 
         return item;
@@ -123,40 +148,123 @@ public class BetterStack<E> implements BetterStackInterface<E> {
             return stack[tail - 1];
         }
     }
-    private E[] increaseSize() {
-        E[] newStack;
-        int j = 0;
 
-        if (capacity * INCREASE_FACTOR < 0) { //Check if capacity will overflow maximum integer value
-            if (capacity + CONSTANT_INCREMENT < 0) {
-                throw (new OutOfMemoryError());
+    /**
+     * Pushes len items from src, starting at src[off], so that src[off + len - 1] ends up on top.
+     *
+     * The stack grows at most once, and the items are copied in with a single System.arraycopy.
+     *
+     * @param src array holding the items to push
+     * @param off index in src of the first (bottom-most) item to push
+     * @param len number of items to push
+     * @throws NullPointerException if any of the items is null (nothing is pushed in that case)
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     * @throws OutOfMemoryError if the underlying data structure cannot hold any more elements
+     */
+    @Override
+    public void pushAll(E[] src, int off, int len) throws OutOfMemoryError {
+
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw (new NullPointerException());
             }
-            newStack = (E[]) new Object[capacity + CONSTANT_INCREMENT];
         }
-        else {
-            newStack = (E[]) new Object[capacity * INCREASE_FACTOR];
+
+        //The stack can hold at most capacity - 1 items
+        long needed = (long) tail + len + 1;
+        if (needed > capacity) {
+            int newCapacity = capacity;
+            while (needed > newCapacity) {
+                newCapacity = policy.grow(newCapacity);
+            }
+            stack = resize(newCapacity);
         }
 
-        for (int i = 0; i < tail; i++) {
-            newStack[j++] = stack[i];
+        System.arraycopy(src, off, stack, tail, len);
+        tail += len;
+
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
         }
-        tail = capacity - 1;
-        capacity *= INCREASE_FACTOR;
-        stack = null;
+    }
 
-        return newStack;
+    /**
+     * Pops up to n items and stores them in dst starting at dst[0], bottom-most first, so the old
+     * top of the stack ends up last.  pushAll(dst, 0, count) puts them back exactly as they were.
+     *
+     * The items are copied out with a single System.arraycopy, and the stack shrinks at most once.
+     *
+     * @param dst array to store the popped items in
+     * @param n largest number of items to pop
+     * @return the number of items popped
+     * @throws IllegalArgumentException if n is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items popped
+     */
+    @Override
+    public int popN(E[] dst, int n) {
+
+        if (n < 0) {
+            throw (new IllegalArgumentException("n must not be negative: " + n));
+        }
+        int count = Math.min(n, tail);
+        Objects.checkFromIndexSize(0, count, dst.length);
+
+        System.arraycopy(stack, tail - count, dst, 0, count);
+
+        //Drop references to the popped items so they can be garbage collected
+        //(simple enough for the JIT to turn into a single memory fill)
+        for (int i = tail - count; i < tail; i++) {
+            stack[i] = null;
+        }
+        tail -= count;
+
+        int newCapacity = capacity;
+        int next = policy.shrink(size(), newCapacity);
+        while (next < newCapacity && next >= minCapacity) {
+            newCapacity = next;
+            next = policy.shrink(size(), newCapacity);
+        }
+        if (newCapacity < capacity) {
+            stack = decreaseSize(newCapacity);
+        }
+
+        return count;
     }
 
-    private E[] decreaseSize() {
+    /**
+     * Publishes this stack's metrics (resizes, elements copied, peak size and footprint) under the
+     * given name, if metrics are enabled (see StructureMetrics); does nothing otherwise
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        if (StructureMetrics.ENABLED) {
+            metrics = StructureMetricsRegistry.register(name, "BetterStack", 4, 1, capacity);
+            metrics.sized(size());
+        }
+    }
+
+    private E[] increaseSize() {
+        return resize(policy.grow(capacity));
+    }
+
+    private E[] decreaseSize(int newCapacity) {
+        return resize(newCapacity);
+    }
 
-        E[] newStack = (E[]) new Object[(int) (capacity * DECREASE_FACTOR)];
-        int j = 0;
-        for (int i = 0; i < tail; i++) {
-            newStack[j++] = stack[i];
+    @SuppressWarnings("unchecked")
+    private E[] resize(int newCapacity) {
+        StructureResizeEvent event = StructureResizeEvent.start("BetterStack", capacity);
+        E[] newStack = (E[]) new Object[newCapacity];
+
+        System.arraycopy(stack, 0, newStack, 0, tail);
+        event.finish(newCapacity, tail);
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.resized(newCapacity, tail);
         }
-        capacity *= DECREASE_FACTOR;
+        capacity = newCapacity;
         stack = null;
-        tail = capacity - 1;
 
         return newStack;
     }
@@ -1,6 +1,7 @@
 package CommonUtils;
 
 import java.util.EmptyStackException;
+import java.util.Objects;
 
 /**
  * Interface for our new BetterStack object.
@@ -33,6 +34,45 @@ public interface BetterStackInterface<E> {
      */
     E peek();
 
+    /**
+     * Pushes len items from src, starting at src[off], so that src[off + len - 1] ends up on top.
+     * By default this pushes them one at a time; implementations may copy them in bulk.
+     * @param src array holding the items to push
+     * @param off index in src of the first (bottom-most) item to push
+     * @param len number of items to push
+     * @throws NullPointerException if any of the items is null
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     * @throws OutOfMemoryError if the underlying data structure cannot hold any more elements
+     */
+    default void pushAll(E[] src, int off, int len) throws OutOfMemoryError {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            push(src[i]);
+        }
+    }
+
+    /**
+     * Pops up to n items and stores them in dst starting at dst[0], bottom-most first, so the old
+     * top of the stack ends up last.  pushAll(dst, 0, count) puts them back exactly as they were.
+     * By default this pops them one at a time; implementations may copy them in bulk.
+     * @param dst array to store the popped items in
+     * @param n largest number of items to pop
+     * @return the number of items popped
+     * @throws IllegalArgumentException if n is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items popped
+     */
+    default int popN(E[] dst, int n) {
+        if (n < 0) {
+            throw (new IllegalArgumentException("n must not be negative: " + n));
+        }
+        int count = Math.min(n, size());
+        Objects.checkFromIndexSize(0, count, dst.length);
+        for (int i = count - 1; i >= 0; i--) {
+            dst[i] = pop();
+        }
+        return count;
+    }
+
     /**
      * Returns whether the stack is empty
      * @return true if the stack is empty, false otherwise
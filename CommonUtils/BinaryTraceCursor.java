@@ -0,0 +1,444 @@
+package CommonUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Walks through the numbers of a binary trace, a compact form of the text input files
+ * (see BinaryTraceWriter, which writes them).
+ *
+ * A binary trace holds the same sequence of numbers as the text file it was made from:
+ *   - magic "IMTR", a version byte, a byte holding the number of header values, and a byte
+ *     holding the number of columns
+ *   - the header values (e.g. "n m t" or "numRequests t") as the first block
+ *   - the rest of the numbers in blocks of at most BLOCK_SIZE values
+ * and every block is
+ *   - the number of values, as an unsigned varint
+ *   - the length of the payload in bytes, as an unsigned varint
+ *   - the payload: each value minus the one a row (the number of columns) before it in the block,
+ *     or minus 0 in the block's first row, zigzag varint encoded
+ *   - the CRC32 of the payload, as 4 big-endian bytes
+ * Request times never decrease and durations are small, so most values take a single byte.  Results
+ * are written as rows (e.g. "timeFilled timeToFulfill"), and the columns keep the deltas of each
+ * field apart.
+ *
+ * The file is read through a FileChannel into a reusable direct ByteBuffer, and each block is checked
+ * against its checksum and decoded into a long array as a whole.  Because every block starts its
+ * deltas over, skip() steps over whole blocks without decoding (or checking) them.
+ */
+public class BinaryTraceCursor implements NumberFileCursor {
+
+    /**
+     * First four bytes of every binary trace: "IMTR".
+     */
+    public static final int MAGIC = 0x494D5452;
+
+    /**
+     * Version of the format written by BinaryTraceWriter.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Largest number of values in a block.
+     */
+    public static final int BLOCK_SIZE = 1 << 12;
+
+    /**
+     * Largest encoded size of a single value.
+     */
+    static final int MAX_VALUE_BYTES = 10;
+
+    /**
+     * Largest encoded size of a block's two counts.
+     */
+    private static final int MAX_BLOCK_HEADER_BYTES = 10;
+
+    /**
+     * Size of the read buffer in bytes; it must hold any whole block.
+     */
+    private final int BUFFER_SIZE = 1 << 16; // 64 KiB
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32 crc;
+
+    //Set once the channel has returned end of file
+    private boolean eof;
+
+    //File offset of the end of the data read into the buffer so far
+    private long bytesRead;
+
+    //Number of header values, and number of values in a row
+    private final int headerSize;
+    private final int columns;
+
+    //Values of the current block, the index of the front of the sequence in it, and the file offset
+    //the block starts at
+    private final long[] block;
+    private int blockSize;
+    private int blockPos;
+    private long blockOffset;
+
+    //Length in bytes of the payload of the block read by nextBlock()
+    private int payloadLength;
+
+
+    /**
+     * Returns whether the given file is a binary trace, by checking its magic
+     *
+     * @param filename file to check
+     * @return true if the file starts with the binary trace magic, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinaryTrace(String filename) throws IOException {
+        try (FileChannel file = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && file.read(magic) >= 0) {
+                //Keep reading until the magic is in or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Opens a cursor at the start of the given binary trace
+     *
+     * @param filename file to read numbers from
+     * @throws IOException if the file cannot be opened or is not a binary trace of a known version
+     */
+    public BinaryTraceCursor(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip(); //Start out with nothing to read
+        crc = new CRC32();
+        eof = false;
+        bytesRead = 0;
+        block = new long[BLOCK_SIZE];
+        blockSize = 0;
+        blockPos = 0;
+        blockOffset = 0;
+        payloadLength = 0;
+
+        try {
+            if (!ensure(7) || buffer.getInt() != MAGIC) {
+                throw (new IOException("Not a binary trace: " + filename));
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw (new IOException("Unsupported binary trace version " + version + ": " + filename));
+            }
+            headerSize = buffer.get() & 0xFF;
+            columns = buffer.get() & 0xFF;
+            if (columns == 0) {
+                throw (new IOException("Bad binary trace header: " + filename));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of header values at the start of the sequence
+     *
+     * @return number of header values
+     */
+    public int getHeaderSize() {
+        return headerSize;
+    }
+
+    /**
+     * Returns the number of values in a row
+     *
+     * @return number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the front of the sequence (does not consume it)
+     *
+     * @return front of the sequence
+     * @throws UncheckedIOException if the file cannot be read or is corrupt, or wrapping an
+     *                              EOFException if there are no numbers left
+     */
+    @Override
+    public long peek() {
+        if (isEmpty()) {
+            throw (new UncheckedIOException(new EOFException("No numbers left to read")));
+        }
+        return block[blockPos];
+    }
+
+    /**
+     * Returns and consumes the front of the sequence
+     *
+     * @return the front of the sequence
+     * @throws UncheckedIOException if the file cannot be read or is corrupt, or wrapping an
+     *                              EOFException if there are no numbers left
+     */
+    @Override
+    public long remove() {
+        if (isEmpty()) {
+            throw (new UncheckedIOException(new EOFException("No numbers left to read")));
+        }
+        return block[blockPos++];
+    }
+
+    /**
+     * Returns whether there are no numbers left, reading the next block if needed
+     *
+     * @return true if the cursor is at the end of the file, false otherwise
+     * @throws UncheckedIOException if the file cannot be read or is corrupt
+     */
+    @Override
+    public boolean isEmpty() {
+        if (blockPos < blockSize) {
+            return false;
+        }
+        try {
+            if (!nextBlock()) {
+                return true;
+            }
+            decode();
+            return false;
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+    }
+
+    /**
+     * Consumes the next count numbers without returning them.  Whole blocks are stepped
+     * over without being decoded.
+     *
+     * @param count how many numbers to skip
+     * @throws UncheckedIOException if the file cannot be read or is corrupt, or wrapping an
+     *                              EOFException if fewer than count numbers are left
+     */
+    @Override
+    public void skip(long count) {
+        try {
+            while (count > 0) {
+                if (blockPos < blockSize) {
+                    int step = (int) Math.min(count, blockSize - blockPos);
+                    blockPos += step;
+                    count -= step;
+                }
+                else if (!nextBlock()) {
+                    throw (new EOFException("No numbers left to read"));
+                }
+                else if (blockSize <= count) { //The whole block is skipped
+                    buffer.position(buffer.position() + payloadLength + 4);
+                    count -= blockSize;
+                }
+                else {
+                    decode();
+                }
+            }
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+    }
+
+    /**
+     * Returns the file offset of the block holding the front of the sequence, times BLOCK_SIZE, plus
+     * the index of the front in that block (so traces of up to 2^51 bytes can be walked)
+     *
+     * @return position of the front of the sequence
+     */
+    @Override
+    public long position() {
+        if (blockPos < blockSize) {
+            return blockOffset * BLOCK_SIZE + blockPos;
+        }
+        return (bytesRead - buffer.remaining()) * BLOCK_SIZE; //The front is the next block's first value
+    }
+
+    /**
+     * Moves the cursor to a position returned by position(), reading only the block it falls in
+     *
+     * @param position position to move to
+     * @throws IOException if the file cannot be read, or position is not at a value of a block
+     */
+    @Override
+    public void seek(long position) throws IOException {
+        long offset = position / BLOCK_SIZE;
+        int index = (int) (position % BLOCK_SIZE);
+        if (position < 0 || offset > channel.size()) {
+            throw (new IOException("Position " + position + " is outside the binary trace"));
+        }
+
+        channel.position(offset);
+        buffer.clear();
+        buffer.flip(); //Nothing read from the new offset yet
+        bytesRead = offset;
+        eof = false;
+        blockSize = 0;
+        blockPos = 0;
+        if (index > 0) {
+            if (!nextBlock()) {
+                throw (new IOException("Position " + position + " is past the last block of the binary trace"));
+            }
+            decode();
+            if (index >= blockSize) {
+                throw (corrupt("Position " + position + " is past the end of the block"));
+            }
+            blockPos = index;
+        }
+    }
+
+    /**
+     * Skips count numbers and returns the file offset just after them, which has to be the end
+     * of a block (see BinaryTraceWriter.append)
+     *
+     * @param count how many numbers to skip
+     * @return file offset of the byte after the count-th number
+     * @throws IOException if the file cannot be read, has fewer than count numbers, or no block ends after them
+     */
+    long offsetAfter(long count) throws IOException {
+        try {
+            skip(count);
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof EOFException) {
+                throw (new EOFException("Binary trace has fewer than " + count + " numbers"));
+            }
+            throw e.getCause();
+        }
+        if (blockPos != blockSize) {
+            throw (new IOException("No block of the binary trace ends after " + count + " numbers"));
+        }
+        return bytesRead - buffer.remaining();
+    }
+
+    /**
+     * Reads the sizes of the next block, leaving its payload and checksum at the front of
+     * the buffer for decode() (or for the caller to step over).  Until then the block counts
+     * as fully consumed.
+     *
+     * @return false at the end of the file
+     */
+    private boolean nextBlock() throws IOException {
+        blockSize = 0;
+        blockPos = 0;
+        blockOffset = bytesRead - buffer.remaining();
+        if (!ensure(1)) {
+            return false;
+        }
+        ensure(MAX_BLOCK_HEADER_BYTES);
+        int count = readCount();
+        int length = readCount();
+        if (count < 1 || count > BLOCK_SIZE || length < count || length > count * MAX_VALUE_BYTES) {
+            throw (corrupt("Bad block size"));
+        }
+        if (!ensure(length + 4)) {
+            throw (corrupt("Truncated block"));
+        }
+
+        blockSize = count;
+        blockPos = count;
+        payloadLength = length;
+        return true;
+    }
+
+    /**
+     * Checks and decodes the payload at the front of the buffer into the current block
+     */
+    private void decode() throws IOException {
+        int start = buffer.position();
+        int end = start + payloadLength;
+
+        int limit = buffer.limit();
+        crc.reset();
+        buffer.limit(end);
+        crc.update(buffer);
+        buffer.limit(limit);
+        if (buffer.getInt(end) != (int) crc.getValue()) {
+            throw (corrupt("Checksum mismatch"));
+        }
+
+        int pos = start;
+        for (int i = 0; i < blockSize; i++) {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= end || shift >= 64) {
+                    throw (corrupt("Bad value"));
+                }
+                b = buffer.get(pos++);
+                raw |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            long delta = (raw >>> 1) ^ -(raw & 1); //Undo zigzag
+            block[i] = i < columns ? delta : block[i - columns] + delta;
+        }
+        if (pos != end) {
+            throw (corrupt("Bad block length"));
+        }
+
+        buffer.position(end + 4);
+        blockPos = 0;
+    }
+
+    /**
+     * Reads an unsigned varint that fits in an int from the front of the buffer
+     */
+    private int readCount() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw (corrupt("Truncated block"));
+            }
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw (corrupt("Bad block size"));
+    }
+
+    /**
+     * Makes sure at least count bytes are left in the buffer, reading more from the file if needed
+     *
+     * @return false if the file ends first
+     */
+    private boolean ensure(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < count && !eof) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                eof = true;
+            }
+            else {
+                bytesRead += read;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= count;
+    }
+
+    private IOException corrupt(String problem) {
+        return (new IOException(problem + " in binary trace near offset " + (bytesRead - buffer.remaining())));
+    }
+
+    /**
+     * Closes the underlying file
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
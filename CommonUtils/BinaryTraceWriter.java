@@ -0,0 +1,254 @@
+package CommonUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a sequence of numbers as a binary trace (see BinaryTraceCursor for the format).
+ *
+ * Values are collected into a block, and each full block is delta and zigzag varint encoded
+ * into a reusable buffer, checksummed and written out through a FileChannel, so writing a value
+ * never allocates.  The first headerSize values make up a block of their own.  Sequences made of
+ * rows of several fields (such as results) are written with one column per field, so every value
+ * is delta encoded against the same field of the row before.
+ */
+public class BinaryTraceWriter implements AutoCloseable {
+
+    /**
+     * Size of the write buffer in bytes; it must hold any whole block.
+     */
+    private final int BUFFER_SIZE = 1 << 16; // 64 KiB
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ByteBuffer payload;
+    private final CRC32 crc;
+
+    //Number of header values, number of values in a row, and the number of values written so far
+    private final int headerSize;
+    private final int columns;
+    private long written;
+
+    //Values of the block being collected
+    private final long[] block;
+    private int blockSize;
+
+
+    /**
+     * Converts a text input file (whitespace-separated ASCII integers) into a binary trace
+     * holding the same numbers
+     *
+     * @param textFile file to read numbers from
+     * @param binaryFile file to write the binary trace to (replaced if it exists)
+     * @param headerSize number of header values at the start of the file (e.g. 3 for "n m t")
+     * @return the number of values written
+     * @throws IOException if either file cannot be read or written, or textFile holds something other than numbers
+     */
+    public static long convert(String textFile, String binaryFile, int headerSize) throws IOException {
+        try (NumberTokenizer tokens = new NumberTokenizer(textFile);
+             BinaryTraceWriter out = new BinaryTraceWriter(binaryFile, headerSize)) {
+
+            while (tokens.hasNext()) {
+                out.add(tokens.nextLong());
+            }
+            return out.written;
+        }
+    }
+
+    /**
+     * Creates (or replaces) the given file and writes the start of a binary trace with
+     * a single column to it
+     *
+     * @param filename file to write
+     * @param headerSize number of header values at the start of the sequence
+     * @throws IllegalArgumentException if headerSize is not between 0 and 255
+     * @throws IOException if the file cannot be written
+     */
+    public BinaryTraceWriter(String filename, int headerSize) throws IOException {
+        this(filename, headerSize, 1);
+    }
+
+    /**
+     * Creates (or replaces) the given file and writes the start of a binary trace to it
+     *
+     * @param filename file to write
+     * @param headerSize number of header values at the start of the sequence
+     * @param columns number of values in a row
+     * @throws IllegalArgumentException if headerSize is not between 0 and 255, or columns is not between 1 and 255
+     * @throws IOException if the file cannot be written
+     */
+    public BinaryTraceWriter(String filename, int headerSize, int columns) throws IOException {
+        this(create(filename, headerSize, columns), headerSize, columns, 0);
+        buffer.putInt(BinaryTraceCursor.MAGIC);
+        buffer.put(BinaryTraceCursor.VERSION);
+        buffer.put((byte) headerSize);
+        buffer.put((byte) columns);
+    }
+
+    private BinaryTraceWriter(FileChannel channel, int headerSize, int columns, long written) {
+        this.channel = channel;
+        this.headerSize = headerSize;
+        this.columns = columns;
+        this.written = written;
+        block = new long[BinaryTraceCursor.BLOCK_SIZE];
+        blockSize = 0;
+        crc = new CRC32();
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        payload = ByteBuffer.allocateDirect(BinaryTraceCursor.BLOCK_SIZE * BinaryTraceCursor.MAX_VALUE_BYTES);
+    }
+
+    private static FileChannel create(String filename, int headerSize, int columns) throws IOException {
+        if (headerSize < 0 || headerSize > 0xFF) {
+            throw (new IllegalArgumentException("headerSize must be between 0 and 255: " + headerSize));
+        }
+        if (columns < 1 || columns > 0xFF) {
+            throw (new IllegalArgumentException("columns must be between 1 and 255: " + columns));
+        }
+        return FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Opens a writer that carries on the given binary trace after its first keepValues values,
+     * dropping everything after them (such as a run's output written after its last checkpoint).
+     * The kept values must end at a block boundary, which is where sync() leaves the file.
+     * If keepValues is 0 the file is simply created (or replaced).
+     *
+     * @param filename binary trace to carry on
+     * @param headerSize number of header values at the start of the sequence
+     * @param columns number of values in a row
+     * @param keepValues number of values to keep
+     * @return a writer positioned after the kept values
+     * @throws IOException if the file cannot be opened, is not a binary trace with this header size and
+     *                     number of columns, or has no block boundary after keepValues values
+     */
+    public static BinaryTraceWriter append(String filename, int headerSize, int columns, long keepValues) throws IOException {
+        if (keepValues == 0) {
+            return (new BinaryTraceWriter(filename, headerSize, columns));
+        }
+
+        long offset;
+        try (BinaryTraceCursor existing = new BinaryTraceCursor(filename)) {
+            if (existing.getHeaderSize() != headerSize || existing.getColumns() != columns) {
+                throw (new IOException("Binary trace " + filename + " has " + existing.getHeaderSize()
+                        + " header values and " + existing.getColumns() + " columns"));
+            }
+            offset = existing.offsetAfter(keepValues);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE);
+        try {
+            channel.truncate(offset);
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return (new BinaryTraceWriter(channel, headerSize, columns, keepValues));
+    }
+
+    /**
+     * Appends a value to the trace
+     *
+     * @param value value to append
+     * @throws IOException if the file cannot be written
+     */
+    public void add(long value) throws IOException {
+        block[blockSize++] = value;
+        written++;
+        if (blockSize == BinaryTraceCursor.BLOCK_SIZE || written == headerSize) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Returns the number of values written so far
+     *
+     * @return number of values
+     */
+    public long size() {
+        return written;
+    }
+
+    /**
+     * Encodes the collected values as one block
+     */
+    private void flushBlock() throws IOException {
+        if (blockSize == 0) {
+            return;
+        }
+
+        payload.clear();
+        for (int i = 0; i < blockSize; i++) {
+            long delta = i < columns ? block[i] : block[i] - block[i - columns];
+            putVarint(payload, (delta << 1) ^ (delta >> 63)); //Zigzag, so small negative deltas stay small
+        }
+        payload.flip();
+        crc.reset();
+        crc.update(payload);
+        payload.flip();
+
+        if (buffer.remaining() < 2 * 5 + payload.remaining() + 4) {
+            drain();
+        }
+        putVarint(buffer, blockSize);
+        putVarint(buffer, payload.remaining());
+        buffer.put(payload);
+        buffer.putInt((int) crc.getValue());
+        blockSize = 0;
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Writes everything in the buffer to the file
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the values collected so far as a (possibly short) block, and forces the file's
+     * contents to the storage device, so they survive a crash.  The file then ends at a block
+     * boundary, so it can be carried on with append().
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void sync() throws IOException {
+        flushBlock();
+        drain();
+        channel.force(false);
+    }
+
+    /**
+     * Writes the last block and closes the file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
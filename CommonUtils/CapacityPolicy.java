@@ -0,0 +1,52 @@
+package CommonUtils;
+
+/**
+ * Decides how big the backing array of a BetterQueue, BetterStack (or one of their
+ * primitive variants) is, and when it grows or shrinks.
+ *
+ * Both structures grow once they are one element short of full, and ask the policy
+ * after every removal whether they should shrink.  A structure never shrinks below
+ * the capacity it was created with.
+ */
+public interface CapacityPolicy {
+
+    /**
+     * The original behavior: start at 8, double when full, halve as soon as less than half full.
+     * A structure that hovers around a power of two resizes on nearly every operation.
+     */
+    CapacityPolicy DEFAULT = new GeometricCapacityPolicy(2, 0.5, 0.5, 8);
+
+    /**
+     * Double when full, but only halve once less than a quarter full.  After any resize the
+     * structure is about half full, so it takes many operations to trigger the next one.
+     */
+    CapacityPolicy HYSTERESIS = new GeometricCapacityPolicy(2, 0.25, 0.5, 8);
+
+    /**
+     * Double when full and never shrink.
+     */
+    CapacityPolicy NO_SHRINK = new GeometricCapacityPolicy(2, 0, 0.5, 8);
+
+    /**
+     * Returns the capacity for a new structure
+     * @param expectedSize number of elements the structure should hold without growing (0 if unknown)
+     * @return the initial capacity
+     */
+    int initialCapacity(int expectedSize);
+
+    /**
+     * Returns the capacity to grow to from a full structure
+     * @param capacity current capacity
+     * @return the new capacity, greater than capacity
+     * @throws OutOfMemoryError if the capacity cannot be increased
+     */
+    int grow(int capacity);
+
+    /**
+     * Returns the capacity to shrink to after a removal
+     * @param size number of elements left in the structure
+     * @param capacity current capacity
+     * @return the new capacity (greater than size), or capacity to leave the structure alone
+     */
+    int shrink(int size, int capacity);
+}
@@ -0,0 +1,254 @@
+package CommonUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A checkpoint of a long-running simulation, from which it can be resumed.
+ *
+ * A checkpoint file holds
+ *   - magic "IMCP", a version byte and a byte naming the kind of simulation
+ *   - the length and last modified time of the input file, to tell whether the checkpoint was taken from it
+ *   - the number of requests read and the number of results handed out when it was taken
+ *   - the number of input cursors, and the position() of each, so a resumed run can seek() straight
+ *     back to where it was instead of reading the input again up to there
+ *   - the simulation's own state, as written by its writeTo method
+ *   - the CRC32 of everything before it, as 4 big-endian bytes
+ * The file is written to a temporary file next to it, forced to the storage device and then renamed
+ * over the old checkpoint, so a run that is stopped part way (even while writing a checkpoint) always
+ * leaves either the old or the new checkpoint behind, never a mix of the two.
+ */
+public class CheckpointFile {
+
+    /**
+     * First four bytes of every checkpoint: "IMCP".
+     */
+    public static final int MAGIC = 0x494D4350;
+
+    /**
+     * Version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Writes the state of a simulation, such as a live engine's writeTo method.
+     */
+    public interface State {
+        /**
+         * Writes the state to out
+         *
+         * @param out where to write the state
+         * @throws IOException if out cannot be written
+         */
+        void writeTo(DataOutput out) throws IOException;
+    }
+
+    private final byte kind;
+    private final long inputLength;
+    private final long inputModified;
+    private final long requestsRead;
+    private final long resultsEmitted;
+    private final long[] inputPositions;
+
+    //Bytes written by the simulation's State
+    private final byte[] state;
+
+
+    private CheckpointFile(byte kind, long inputLength, long inputModified, long requestsRead,
+                           long resultsEmitted, long[] inputPositions, byte[] state) {
+        this.kind = kind;
+        this.inputLength = inputLength;
+        this.inputModified = inputModified;
+        this.requestsRead = requestsRead;
+        this.resultsEmitted = resultsEmitted;
+        this.inputPositions = inputPositions;
+        this.state = state;
+    }
+
+    /**
+     * Writes a checkpoint, replacing any checkpoint already in the file
+     *
+     * @param filename file to write the checkpoint to
+     * @param kind kind of simulation, checked by matches() when resuming
+     * @param input input file of the simulation
+     * @param requestsRead number of requests read so far
+     * @param resultsEmitted number of results handed out so far
+     * @param inputPositions position() of each of the simulation's input cursors (at most 255)
+     * @param state writes the simulation's state
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public static void write(String filename, byte kind, String input, long requestsRead,
+                             long resultsEmitted, long[] inputPositions, State state) throws IOException {
+        File inputFile = new File(input);
+        Path target = Paths.get(filename);
+        Path temp = Paths.get(filename + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file), crc));
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(kind);
+            out.writeLong(inputFile.length());
+            out.writeLong(inputFile.lastModified());
+            out.writeLong(requestsRead);
+            out.writeLong(resultsEmitted);
+            out.writeByte(inputPositions.length);
+            for (long position : inputPositions) {
+                out.writeLong(position);
+            }
+            state.writeTo(out);
+
+            out.writeInt((int) crc.getValue()); //Read before the trailer goes through the checksum
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint, checking it against its checksum
+     *
+     * @param filename file to read the checkpoint from
+     * @return the checkpoint, or null if the file does not exist
+     * @throws IOException if the file cannot be read or is not a valid checkpoint
+     */
+    public static CheckpointFile read(String filename) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(Paths.get(filename));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        int headerLength = 4 + 1 + 1 + 4 * 8 + 1;
+        if (bytes.length < headerLength + 4) {
+            throw (new IOException("Truncated checkpoint: " + filename));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipNBytes(bytes.length - 4);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw (new IOException("Checksum mismatch in checkpoint: " + filename));
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+        if (in.readInt() != MAGIC) {
+            throw (new IOException("Not a checkpoint: " + filename));
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw (new IOException("Unsupported checkpoint version " + version + ": " + filename));
+        }
+        byte kind = in.readByte();
+        long inputLength = in.readLong();
+        long inputModified = in.readLong();
+        long requestsRead = in.readLong();
+        long resultsEmitted = in.readLong();
+        long[] inputPositions = new long[in.readUnsignedByte()];
+        headerLength += 8 * inputPositions.length;
+        if (bytes.length < headerLength + 4) {
+            throw (new IOException("Truncated checkpoint: " + filename));
+        }
+        for (int i = 0; i < inputPositions.length; i++) {
+            inputPositions[i] = in.readLong();
+        }
+
+        byte[] state = new byte[bytes.length - 4 - headerLength];
+        System.arraycopy(bytes, headerLength, state, 0, state.length);
+        return (new CheckpointFile(kind, inputLength, inputModified, requestsRead, resultsEmitted, inputPositions, state));
+    }
+
+    /**
+     * Returns the number of results handed out before the checkpoint in the given file was taken,
+     * which is how many results an output file has to keep to carry on a resumed run
+     *
+     * @param filename file holding the checkpoint
+     * @return number of results, or 0 if there is no checkpoint
+     * @throws IOException if the file cannot be read or is not a valid checkpoint
+     */
+    public static long resultsEmitted(String filename) throws IOException {
+        CheckpointFile checkpoint = read(filename);
+        return checkpoint == null ? 0 : checkpoint.getResultsEmitted();
+    }
+
+    /**
+     * Deletes the checkpoint in the given file, if any
+     *
+     * @param filename file holding the checkpoint
+     * @throws IOException if the file cannot be deleted
+     */
+    public static void delete(String filename) throws IOException {
+        Files.deleteIfExists(Paths.get(filename));
+    }
+
+    /**
+     * Returns whether this checkpoint was taken from a simulation of the given kind over the given
+     * input file, as it is now (same length and last modified time)
+     *
+     * @param kind kind of simulation
+     * @param input input file of the simulation
+     * @return true if the simulation can be resumed from this checkpoint, false otherwise
+     */
+    public boolean matches(byte kind, String input) {
+        File inputFile = new File(input);
+        return this.kind == kind && inputFile.length() == inputLength && inputFile.lastModified() == inputModified;
+    }
+
+    /**
+     * Returns the number of requests read when the checkpoint was taken
+     *
+     * @return number of requests
+     */
+    public long getRequestsRead() {
+        return requestsRead;
+    }
+
+    /**
+     * Returns the position of one of the simulation's input cursors when the checkpoint was taken
+     *
+     * @param cursor index of the cursor, in the order they were given to write()
+     * @return position to seek() the cursor to
+     * @throws IOException if the checkpoint holds no position for that cursor
+     */
+    public long getInputPosition(int cursor) throws IOException {
+        if (cursor < 0 || cursor >= inputPositions.length) {
+            throw (new IOException("Checkpoint has no position for input cursor " + cursor));
+        }
+        return inputPositions[cursor];
+    }
+
+    /**
+     * Returns the number of results handed out when the checkpoint was taken
+     *
+     * @return number of results
+     */
+    public long getResultsEmitted() {
+        return resultsEmitted;
+    }
+
+    /**
+     * Returns the simulation's state, for its readFrom method
+     *
+     * @return a fresh DataInput over the state
+     */
+    public DataInput getState() {
+        return (new DataInputStream(new ByteArrayInputStream(state)));
+    }
+}
@@ -0,0 +1,112 @@
+package CommonUtils;
+
+/**
+ * A small pool of fixed-size array chunks for SegmentedBetterQueue and SegmentedBetterStack.
+ *
+ * Segmented structures grow and shrink a chunk at a time.  Instead of dropping a chunk they no longer
+ * need, they give it back to their pool, and take it again the next time they grow, so a structure
+ * that keeps growing and shrinking around the same size allocates nothing once it is warmed up.  The
+ * pool keeps at most maxPooled chunks; any more are left to the garbage collector.
+ *
+ * Structures can share a pool, but a pool is not thread-safe, so only structures used by the same
+ * thread may share one.
+ */
+public class ChunkPool {
+
+    /**
+     * Default number of elements in a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    /**
+     * Default number of chunks a pool keeps.
+     */
+    public static final int DEFAULT_MAX_POOLED = 4;
+
+    /**
+     * One chunk of a segmented structure, linked to the chunks on either side of it.
+     */
+    static final class Chunk {
+        final Object[] items;
+        Chunk next;
+        Chunk prev;
+
+        Chunk(int size) {
+            items = new Object[size];
+        }
+    }
+
+    private final int chunkSize;
+
+    //Chunks ready to be reused (all of their items are null)
+    private final Chunk[] pooled;
+    private int count;
+
+
+    /**
+     * Constructs a pool of DEFAULT_CHUNK_SIZE-element chunks that keeps at most DEFAULT_MAX_POOLED of them
+     */
+    public ChunkPool() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * Constructs a pool of chunks of the given size
+     *
+     * @param chunkSize number of elements in a chunk
+     * @param maxPooled largest number of chunks to keep for reuse
+     * @throws IllegalArgumentException if chunkSize is not positive or maxPooled is negative
+     */
+    public ChunkPool(int chunkSize, int maxPooled) {
+        if (chunkSize < 1) {
+            throw (new IllegalArgumentException("chunkSize must be positive: " + chunkSize));
+        }
+        if (maxPooled < 0) {
+            throw (new IllegalArgumentException("maxPooled must not be negative: " + maxPooled));
+        }
+        this.chunkSize = chunkSize;
+        pooled = new Chunk[maxPooled];
+        count = 0;
+    }
+
+    /**
+     * Returns the number of elements in a chunk
+     *
+     * @return chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the number of chunks waiting to be reused
+     *
+     * @return number of pooled chunks
+     */
+    public int pooled() {
+        return count;
+    }
+
+    /**
+     * Returns an empty, unlinked chunk: a pooled one if there is one, otherwise a new one
+     */
+    Chunk take() {
+        if (count > 0) {
+            Chunk chunk = pooled[--count];
+            pooled[count] = null;
+            return chunk;
+        }
+        return (new Chunk(chunkSize));
+    }
+
+    /**
+     * Takes back a chunk that is no longer used.  All of its items must already be null.
+     */
+    void give(Chunk chunk) {
+        chunk.next = null;
+        chunk.prev = null;
+        if (count < pooled.length) {
+            pooled[count++] = chunk;
+        }
+    }
+}
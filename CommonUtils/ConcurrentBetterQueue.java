@@ -0,0 +1,249 @@
+package CommonUtils;
+
+import java.awt.*;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @implNote Bounded, lock-free queue that any number of threads may add to and remove from at once.
+ *
+ * This is a circular array like BetterQueue, with a fixed capacity (rounded up to a power of two,
+ * and at least 2).  Next to every slot is a sequence number that says whose turn the slot is:
+ *   - sequence == position: the slot is free for the producer that claims position
+ *   - sequence == position + 1: the slot holds the item for the consumer that claims position
+ * A producer claims a position by compare-and-setting the tail from position to position + 1,
+ * writes the item, and hands the slot over by publishing position + 1 as its sequence.  Consumers
+ * do the same with the head and publish position + capacity, freeing the slot for the producer
+ * one lap later.  Threads therefore only contend on the head or the tail counter, never on a lock,
+ * and a producer and a consumer never touch the same counter.
+ *
+ * The head and tail counters are kept 128 bytes apart so producers and consumers do not keep
+ * stealing the same cache line from each other (false sharing).
+ *
+ * add waits for a consumer to make room when the queue is full; offer returns false instead.
+ * size, isEmpty and peek return a snapshot: by the time they return, other threads may already
+ * have changed the queue.  When no other thread is active they are exact.
+ *
+ * @param <E> the type of object this queue will be holding
+ */
+public class ConcurrentBetterQueue<E> implements BetterQueueInterface<E> {
+
+    /**
+     * Distance in longs between the padded counters (16 longs = 128 bytes, two cache lines).
+     */
+    private static final int PAD = 16;
+
+    //Slots in counters: positions of the next item to remove and of the next free slot
+    private static final int HEAD = PAD;
+    private static final int TAIL = 2 * PAD;
+
+    private final AtomicLongArray counters = new AtomicLongArray(3 * PAD);
+
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+
+    /**
+     * Constructs an empty queue holding at most capacity items (rounded up to a power of two)
+     *
+     * @param capacity the most items the queue can hold at once
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    public ConcurrentBetterQueue(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw (new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity));
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.setPlain(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Add an item to the back of the queue, waiting for a consumer to make room if the queue is full
+     *
+     * @param item item to push
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void add(E item) {
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        int spins = 0;
+        while (!offer(item)) {
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Add an item to the back of the queue if there is room
+     *
+     * @param item item to push
+     * @return true if the item was added, false if the queue was full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E item) {
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        long position = counters.get(TAIL);
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.getAcquire(slot) - position;
+
+            if (difference == 0) { //Slot is free for this position; try to claim it
+                if (counters.weakCompareAndSetVolatile(TAIL, position, position + 1)) {
+                    items.setPlain(slot, item);
+                    sequences.setRelease(slot, position + 1);
+                    return true;
+                }
+                position = counters.get(TAIL);
+            }
+            else if (difference < 0) { //Slot still holds the item from the previous lap: full
+                return false;
+            }
+            else { //Another producer already claimed this position
+                position = counters.get(TAIL);
+            }
+        }
+    }
+
+    /**
+     * Returns the front of the queue (does not remove it) or <code>null</code> if the queue is empty
+     *
+     * @return front of the queue or <code>null</code> if the queue is empty
+     */
+    @Override
+    public E peek() {
+        while (true) {
+            long position = counters.get(HEAD);
+            int slot = (int) position & mask;
+            long difference = sequences.getAcquire(slot) - (position + 1);
+
+            if (difference < 0) {
+                return null;
+            }
+            if (difference == 0) {
+                E item = items.getAcquire(slot);
+                //Only trust the item if no consumer took it while we were reading
+                if (item != null && counters.get(HEAD) == position) {
+                    return item;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns and removes the front of the queue
+     *
+     * @return the head of the queue, or <code>null</code> if this queue is empty
+     */
+    @Override
+    public E remove() {
+        long position = counters.get(HEAD);
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.getAcquire(slot) - (position + 1);
+
+            if (difference == 0) { //Slot holds the item for this position; try to claim it
+                if (counters.weakCompareAndSetVolatile(HEAD, position, position + 1)) {
+                    E item = items.getPlain(slot);
+                    items.setPlain(slot, null);
+                    sequences.setRelease(slot, position + mask + 1);
+                    return item;
+                }
+                position = counters.get(HEAD);
+            }
+            else if (difference < 0) { //Nothing has been added at this position yet: empty
+                return null;
+            }
+            else { //Another consumer already claimed this position
+                position = counters.get(HEAD);
+            }
+        }
+    }
+
+    /**
+     * Removes up to max items from the front of the queue and stores them in dst, in the order they
+     * were removed, starting at dst[0].  Other consumers may remove items in between.
+     *
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    @Override
+    public int drainTo(E[] dst, int max) {
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        int count = 0;
+        while (count < max && !isEmpty()) {
+            Objects.checkIndex(count, dst.length); //Check before removing so no item is lost
+            E item = remove();
+            if (item == null) {
+                break;
+            }
+            dst[count++] = item;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of elements in the queue.  If other threads are active this is only a snapshot.
+     *
+     * @return integer representing the number of elements in the queue
+     */
+    @Override
+    public int size() {
+        while (true) {
+            long head = counters.get(HEAD);
+            long tail = counters.get(TAIL);
+            if (counters.get(HEAD) == head) { //Head did not move while reading tail
+                return (int) Math.max(0, Math.min(tail - head, mask + 1));
+            }
+        }
+    }
+
+    /**
+     * Returns whether the queue is empty.  If other threads are active this is only a snapshot.
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Returns the most items the queue can hold at once
+     *
+     * @return the capacity of the queue
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the queue how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
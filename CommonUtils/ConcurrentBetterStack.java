@@ -0,0 +1,284 @@
+package CommonUtils;
+
+import java.util.EmptyStackException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @implNote Lock-free stack that any number of threads may push to and pop from at once.
+ *
+ * The stack is a linked list of immutable nodes, and the top is swapped with a single
+ * compare-and-set (a Treiber stack).  Every node also records how many nodes are below it
+ * plus one, so size() is exact and O(1) even though the stack is shared.
+ *
+ * Under contention every thread is trying to CAS the same top, and most of them fail.  A thread
+ * whose CAS fails first tries the elimination array: a pusher parks its node in a random slot for
+ * a short while, and a popper that finds a parked node in its random slot takes it directly.  A
+ * push and pop that meet like this cancel each other out without touching the top at all, so the
+ * more threads there are, the more operations complete without contending on it.  If no partner
+ * shows up, the thread goes back to the top and retries.
+ *
+ * pop and peek throw EmptyStackException exactly when they see an empty stack; pushAll and popN
+ * push or pop their whole batch with a single CAS, so the batch is never interleaved with other threads.
+ *
+ * @param <E> the type of object this stack will be holding
+ */
+public class ConcurrentBetterStack<E> implements BetterStackInterface<E> {
+
+    /**
+     * Number of elimination slots.  More slots than threads only makes partners less likely to meet.
+     */
+    private static final int ELIMINATION_SIZE = Math.max(1, Math.min(32, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * How many times a pusher checks its elimination slot before taking its node back.
+     */
+    private static final int ELIMINATION_SPINS = 1 << 7;
+
+    /**
+     * One entry of the stack
+     */
+    private static final class Node<E> {
+        final E item;
+        final Node<E> next;
+
+        //Number of nodes from this one to the bottom, inclusive
+        final int size;
+
+        Node(E item, Node<E> next) {
+            this.item = item;
+            this.next = next;
+            size = next == null ? 1 : next.size + 1;
+        }
+    }
+
+    private final AtomicReference<Node<E>> top = new AtomicReference<>();
+
+    //Nodes offered by pushers to poppers, null when a slot is free
+    private final AtomicReferenceArray<Node<E>> elimination = new AtomicReferenceArray<>(ELIMINATION_SIZE);
+
+
+    /**
+     * Push an item onto the top of the stack
+     *
+     * @param item item to push
+     * @throws NullPointerException if the specified element is null
+     * @throws OutOfMemoryError if the stack already holds Integer.MAX_VALUE items
+     */
+    @Override
+    public void push(E item) throws OutOfMemoryError {
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+
+        int spins = 0;
+        while (true) {
+            Node<E> oldTop = top.get();
+            checkRoom(oldTop, 1);
+            Node<E> node = new Node<>(item, oldTop);
+            if (top.compareAndSet(oldTop, node)) {
+                return;
+            }
+            if (eliminatePush(node)) {
+                return;
+            }
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Remove and return the top item on the stack
+     *
+     * @return the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    public E pop() {
+        int spins = 0;
+        while (true) {
+            Node<E> oldTop = top.get();
+            if (oldTop == null) {
+                throw (new EmptyStackException());
+            }
+            if (top.compareAndSet(oldTop, oldTop.next)) {
+                return oldTop.item;
+            }
+            Node<E> partner = eliminatePop();
+            if (partner != null) {
+                return partner.item;
+            }
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Returns the top of the stack (does not remove it).
+     *
+     * @return the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    public E peek() {
+        Node<E> node = top.get();
+        if (node == null) {
+            throw (new EmptyStackException());
+        }
+        return node.item;
+    }
+
+    /**
+     * Pushes len items from src, starting at src[off], so that src[off + len - 1] ends up on top.
+     * The items are linked up first and then pushed together with one CAS.
+     *
+     * @param src array holding the items to push
+     * @param off index in src of the first (bottom-most) item to push
+     * @param len number of items to push
+     * @throws NullPointerException if any of the items is null (nothing is pushed in that case)
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     * @throws OutOfMemoryError if the stack cannot hold len more items
+     */
+    @Override
+    public void pushAll(E[] src, int off, int len) throws OutOfMemoryError {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw (new NullPointerException());
+            }
+        }
+        if (len == 0) {
+            return;
+        }
+
+        int spins = 0;
+        while (true) {
+            Node<E> oldTop = top.get();
+            checkRoom(oldTop, len);
+            //The sizes are stored in the nodes, so the chain has to be rebuilt on top of each new oldTop
+            Node<E> node = oldTop;
+            for (int i = off; i < off + len; i++) {
+                node = new Node<>(src[i], node);
+            }
+            if (top.compareAndSet(oldTop, node)) {
+                return;
+            }
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Pops up to n items with one CAS and stores them in dst starting at dst[0], bottom-most first,
+     * so the old top of the stack ends up last.  pushAll(dst, 0, count) puts them back exactly as they were.
+     *
+     * @param dst array to store the popped items in
+     * @param n largest number of items to pop
+     * @return the number of items popped
+     * @throws IllegalArgumentException if n is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items popped
+     */
+    @Override
+    public int popN(E[] dst, int n) {
+        if (n < 0) {
+            throw (new IllegalArgumentException("n must not be negative: " + n));
+        }
+
+        int spins = 0;
+        while (true) {
+            Node<E> oldTop = top.get();
+            int count = oldTop == null ? 0 : Math.min(n, oldTop.size);
+            Objects.checkFromIndexSize(0, count, dst.length);
+
+            Node<E> newTop = oldTop;
+            for (int i = 0; i < count; i++) {
+                newTop = newTop.next;
+            }
+            if (top.compareAndSet(oldTop, newTop)) {
+                Node<E> node = oldTop;
+                for (int i = count - 1; i >= 0; i--) {
+                    dst[i] = node.item;
+                    node = node.next;
+                }
+                return count;
+            }
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Returns whether the stack is empty.  If other threads are active this is only a snapshot.
+     *
+     * @return true if the stack is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return top.get() == null;
+    }
+
+    /**
+     * Returns the number of elements in the stack.  If other threads are active this is only a snapshot.
+     *
+     * @return integer representing the number of elements in the stack
+     */
+    @Override
+    public int size() {
+        Node<E> node = top.get();
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Throws OutOfMemoryError if count more items do not fit on top of oldTop
+     */
+    private void checkRoom(Node<E> oldTop, int count) {
+        if (oldTop != null && oldTop.size > Integer.MAX_VALUE - count) {
+            throw (new OutOfMemoryError());
+        }
+    }
+
+    /**
+     * Offers node to a popper through a random elimination slot
+     *
+     * @return true if a popper took it (the push is done), false if the pusher has to retry
+     */
+    private boolean eliminatePush(Node<E> node) {
+        int slot = ThreadLocalRandom.current().nextInt(ELIMINATION_SIZE);
+        if (!elimination.compareAndSet(slot, null, node)) {
+            return false; //Another pusher is already waiting here
+        }
+        for (int i = 0; i < ELIMINATION_SPINS; i++) {
+            if (elimination.get(slot) != node) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        //Take the node back, unless a popper got to it first
+        return !elimination.compareAndSet(slot, node, null);
+    }
+
+    /**
+     * Looks for a waiting pusher in a random elimination slot
+     *
+     * @return the node taken from the pusher, or null if there was none
+     */
+    private Node<E> eliminatePop() {
+        int slot = ThreadLocalRandom.current().nextInt(ELIMINATION_SIZE);
+        Node<E> node = elimination.get(slot);
+        if (node != null && elimination.compareAndSet(slot, node, null)) {
+            return node;
+        }
+        return null;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(java.awt.Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the stack how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
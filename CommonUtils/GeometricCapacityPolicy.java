@@ -0,0 +1,105 @@
+package CommonUtils;
+
+/**
+ * Capacity policy that grows and shrinks by constant factors.
+ *
+ * A full structure grows to capacity * growthFactor.  If that does not fit in an int,
+ * it grows by CONSTANT_INCREMENT instead, and if that doesn't fit either an
+ * OutOfMemoryError is thrown.
+ *
+ * After a removal, if fewer than capacity * shrinkThreshold elements are left, the
+ * structure shrinks to capacity * shrinkFactor, but never below minCapacity.  Keeping
+ * shrinkThreshold well below shrinkFactor gives hysteresis: a structure that just resized
+ * is about half full and has to move a long way before it resizes again.  A shrinkThreshold
+ * of 0 disables shrinking.
+ */
+public class GeometricCapacityPolicy implements CapacityPolicy {
+
+    private final int CONSTANT_INCREMENT = 1 << 5; // 32
+
+    private final double growthFactor;
+    private final double shrinkThreshold;
+    private final double shrinkFactor;
+    private final int minCapacity;
+
+
+    /**
+     * Constructs a policy
+     *
+     * @param growthFactor factor to grow by when full, greater than 1
+     * @param shrinkThreshold fraction of the capacity below which to shrink, 0 to never shrink
+     * @param shrinkFactor factor to shrink by, between shrinkThreshold and 1
+     * @param minCapacity smallest capacity to use, at least 2
+     * @throws IllegalArgumentException if the parameters are out of range
+     */
+    public GeometricCapacityPolicy(double growthFactor, double shrinkThreshold, double shrinkFactor, int minCapacity) {
+        if (growthFactor <= 1) {
+            throw (new IllegalArgumentException("growthFactor must be greater than 1: " + growthFactor));
+        }
+        if (shrinkThreshold < 0 || shrinkThreshold > shrinkFactor || shrinkFactor >= 1) {
+            throw (new IllegalArgumentException("Need 0 <= shrinkThreshold <= shrinkFactor < 1: "
+                    + shrinkThreshold + ", " + shrinkFactor));
+        }
+        if (minCapacity < 2) {
+            throw (new IllegalArgumentException("minCapacity must be at least 2: " + minCapacity));
+        }
+        this.growthFactor = growthFactor;
+        this.shrinkThreshold = shrinkThreshold;
+        this.shrinkFactor = shrinkFactor;
+        this.minCapacity = minCapacity;
+    }
+
+    /**
+     * Returns the capacity for a new structure.  The structures grow once they are one short of
+     * full, so this leaves one spare slot on top of expectedSize.
+     *
+     * @param expectedSize number of elements the structure should hold without growing (0 if unknown)
+     * @return the initial capacity
+     */
+    @Override
+    public int initialCapacity(int expectedSize) {
+        if (expectedSize >= Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(minCapacity, expectedSize + 1);
+    }
+
+    /**
+     * Returns the capacity to grow to from a full structure
+     *
+     * @param capacity current capacity
+     * @return the new capacity, greater than capacity
+     * @throws OutOfMemoryError if the capacity cannot be increased
+     */
+    @Override
+    public int grow(int capacity) {
+        long newCapacity = Math.max((long) (capacity * growthFactor), capacity + 1L);
+
+        if (newCapacity > Integer.MAX_VALUE) { //Check if capacity will overflow maximum integer value
+            if (capacity + CONSTANT_INCREMENT < 0) {
+                throw (new OutOfMemoryError());
+            }
+            return capacity + CONSTANT_INCREMENT;
+        }
+        return (int) newCapacity;
+    }
+
+    /**
+     * Returns the capacity to shrink to after a removal
+     *
+     * @param size number of elements left in the structure
+     * @param capacity current capacity
+     * @return the new capacity (greater than size), or capacity to leave the structure alone
+     */
+    @Override
+    public int shrink(int size, int capacity) {
+        if (size >= capacity * shrinkThreshold) {
+            return capacity;
+        }
+        int newCapacity = (int) (capacity * shrinkFactor);
+        if (newCapacity < minCapacity || newCapacity <= size) {
+            return capacity;
+        }
+        return newCapacity;
+    }
+}
@@ -0,0 +1,293 @@
+package CommonUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EmptyStackException;
+
+/**
+ * @implNote Implement a stack of int pairs using two parallel arrays with initial capacity 8.
+ *
+ * This is the same array stack as BetterStack, but each entry is split across two
+ * int[] columns ("first" and "second") instead of being an object referenced from
+ * an Object[].  Pushing never allocates, and reading the top entry does not have to
+ * follow a pointer.
+ *
+ * Growth and shrink behave exactly like BetterStack, and follow the same CapacityPolicy.
+ */
+public class IntPairBetterStack implements IntPairBetterStackInterface {
+
+    /**
+     * Decides the initial capacity and when the arrays grow or shrink (see CapacityPolicy).
+     * The default policy starts at 8, doubles when full and halves when less than half full.
+     */
+    private final CapacityPolicy policy;
+
+    /**
+     * Never shrink below this capacity (the capacity the stack was created with).
+     */
+    private final int minCapacity;
+
+
+    /**
+     * Parallel arrays holding the two columns; entry i is (firsts[i], seconds[i]).
+     */
+    private int[] firsts;
+    private int[] seconds;
+    private int capacity;
+    private int tail;
+
+    //Metrics published by enableMetrics, or null if there are none
+    private StructureMetrics metrics;
+
+
+    /**
+     * Constructs an empty stack
+     */
+    public IntPairBetterStack(){
+        this(0, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty stack that can hold expectedSize entries without growing
+     *
+     * @param expectedSize number of entries the stack is expected to hold
+     */
+    public IntPairBetterStack(int expectedSize){
+        this(expectedSize, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty stack that grows and shrinks according to policy
+     *
+     * @param policy decides when the backing arrays grow and shrink
+     */
+    public IntPairBetterStack(CapacityPolicy policy){
+        this(0, policy);
+    }
+
+    /**
+     * Constructs an empty stack that can hold expectedSize entries without growing,
+     * and grows and shrinks according to policy.  It never shrinks below its initial capacity.
+     *
+     * @param expectedSize number of entries the stack is expected to hold
+     * @param policy decides when the backing arrays grow and shrink
+     */
+    public IntPairBetterStack(int expectedSize, CapacityPolicy policy){
+        this.policy = policy;
+        capacity = policy.initialCapacity(expectedSize);
+        minCapacity = capacity;
+        firsts = new int[capacity];
+        seconds = new int[capacity];
+        tail = 0;
+    }
+
+
+    /**
+     * Push an entry onto the top of the stack
+     *
+     * @param first value of the first column
+     * @param second value of the second column
+     * @throws OutOfMemoryError if the underlying data structure cannot hold any more elements
+     */
+    @Override
+    public void push(int first, int second) throws OutOfMemoryError {
+
+        if (size() == capacity - 1) {
+            increaseSize();
+        }
+        firsts[tail] = first;
+        seconds[tail] = second;
+        tail++;
+
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
+        }
+    }
+
+    /**
+     * Remove the top entry of the stack
+     *
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    public void pop() {
+
+        if (isEmpty()) {
+            throw(new EmptyStackException());
+        }
+
+        tail--;
+
+        int newCapacity = policy.shrink(size(), capacity);
+        if (newCapacity < capacity && newCapacity >= minCapacity) {
+            resize(newCapacity);
+        }
+    }
+
+    /**
+     * Returns the first column of the top entry (does not remove it).
+     *
+     * @return the first column of the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    public int peekFirst() {
+        if (isEmpty()) {
+            throw(new EmptyStackException());
+        }
+        return firsts[tail - 1];
+    }
+
+    /**
+     * Returns the second column of the top entry (does not remove it).
+     *
+     * @return the second column of the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    public int peekSecond() {
+        if (isEmpty()) {
+            throw(new EmptyStackException());
+        }
+        return seconds[tail - 1];
+    }
+
+    /**
+     * Replaces the second column of the top entry in place.
+     *
+     * @param second new value of the second column
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    public void setTopSecond(int second) {
+        if (isEmpty()) {
+            throw(new EmptyStackException());
+        }
+        seconds[tail - 1] = second;
+    }
+
+    /**
+     * Writes the entries to out, bottom first: the number of entries, then each entry's two columns.
+     * Only the entries in use are written, not the whole capacity.
+     *
+     * @param out where to write the entries
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(tail);
+        for (int i = 0; i < tail; i++) {
+            out.writeInt(firsts[i]);
+            out.writeInt(seconds[i]);
+        }
+    }
+
+    /**
+     * Reads a stack written by writeTo, with the default capacity policy
+     *
+     * @param in where to read the entries from
+     * @return a stack holding the entries, with the same entry on top
+     * @throws IOException if in cannot be read or does not hold a stack
+     */
+    public static IntPairBetterStack readFrom(DataInput in) throws IOException {
+        return readFrom(in, 0, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Reads a stack written by writeTo.  The entries are read straight into the new stack's arrays.
+     *
+     * @param in where to read the entries from
+     * @param expectedSize number of entries the new stack is expected to hold (at least as many as are read)
+     * @param policy decides when the new stack's backing arrays grow and shrink
+     * @return a stack holding the entries, with the same entry on top
+     * @throws IOException if in cannot be read or does not hold a stack
+     */
+    public static IntPairBetterStack readFrom(DataInput in, int expectedSize, CapacityPolicy policy) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw (new IOException("Bad stack size: " + size));
+        }
+
+        IntPairBetterStack result = new IntPairBetterStack(Math.max(size, expectedSize), policy);
+        for (int i = 0; i < size; i++) {
+            result.firsts[i] = in.readInt();
+            result.seconds[i] = in.readInt();
+        }
+        result.tail = size;
+        return result;
+    }
+
+    /**
+     * Publishes this stack's metrics (resizes, elements copied, peak size and footprint) under the
+     * given name, if metrics are enabled (see StructureMetrics); does nothing otherwise
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        if (StructureMetrics.ENABLED) {
+            metrics = StructureMetricsRegistry.register(name, "IntPairBetterStack", 8, 2, capacity);
+            metrics.sized(size());
+        }
+    }
+
+    private void increaseSize() {
+        resize(policy.grow(capacity));
+    }
+
+    private void resize(int newCapacity) {
+        StructureResizeEvent event = StructureResizeEvent.start("IntPairBetterStack", capacity);
+        int[] newFirsts = new int[newCapacity];
+        int[] newSeconds = new int[newCapacity];
+
+        System.arraycopy(firsts, 0, newFirsts, 0, tail);
+        System.arraycopy(seconds, 0, newSeconds, 0, tail);
+        event.finish(newCapacity, tail);
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.resized(newCapacity, tail);
+        }
+        firsts = newFirsts;
+        seconds = newSeconds;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Returns whether the stack is empty
+     *
+     * @return true if the stack is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return tail == 0;
+    }
+
+    /**
+     * Returns the number of entries in the stack
+     *
+     * @return integer representing the number of entries in the stack
+     */
+    @Override
+    public int size() {
+        return tail;
+    }
+
+    public int getTail() {
+        return tail;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(java.awt.Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the stack how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
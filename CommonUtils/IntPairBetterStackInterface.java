@@ -0,0 +1,65 @@
+package CommonUtils;
+
+import java.util.EmptyStackException;
+
+/**
+ * Interface for a BetterStack whose entries are pairs of primitive ints.
+ *
+ * Each entry has a "first" and a "second" column.  Instead of allocating an object
+ * per entry, implementations store the two columns side by side, and the top entry
+ * can be updated in place rather than popped, changed, and pushed back.
+ */
+public interface IntPairBetterStackInterface {
+    /**
+     * Push an entry onto the top of the stack
+     * @param first value of the first column
+     * @param second value of the second column
+     * @throws OutOfMemoryError if the underlying data structure cannot hold any more elements
+     */
+    void push(int first, int second) throws OutOfMemoryError;
+
+    /**
+     * Remove the top entry of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    void pop();
+
+    /**
+     * Returns the first column of the top entry (does not remove it).
+     * @return the first column of the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    int peekFirst();
+
+    /**
+     * Returns the second column of the top entry (does not remove it).
+     * @return the second column of the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    int peekSecond();
+
+    /**
+     * Replaces the second column of the top entry in place.
+     * @param second new value of the second column
+     * @throws EmptyStackException if stack is empty
+     */
+    void setTopSecond(int second);
+
+    /**
+     * Returns whether the stack is empty
+     * @return true if the stack is empty, false otherwise
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the number of entries in the stack
+     * @return integer representing the number of entries in the stack
+     */
+    int size();
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     * @param g graphics object to draw on
+     */
+    void draw(java.awt.Graphics g);
+}
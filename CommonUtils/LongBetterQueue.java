@@ -0,0 +1,381 @@
+package CommonUtils;
+
+import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * @implNote implement a queue of primitive longs using a circular array with initial capacity 8.
+ *
+ * This is the same circular array queue as BetterQueue, but backed by a long[] instead
+ * of an Object[].  Storing the values unboxed means adding an element never allocates
+ * a Long on the heap, and the ring holds the values themselves instead of pointers to
+ * them, so a queue of timestamps is both smaller and friendlier to the cache.
+ *
+ * Growth and shrink behave exactly like BetterQueue, and follow the same CapacityPolicy.
+ */
+public class LongBetterQueue implements LongBetterQueueInterface {
+
+    /**
+     * Decides the initial capacity and when the array grows or shrinks (see CapacityPolicy).
+     * The default policy starts at 8, doubles when full and halves when less than half full.
+     */
+    private final CapacityPolicy policy;
+
+    /**
+     * Never shrink below this capacity (the capacity the queue was created with).
+     */
+    private final int minCapacity;
+
+
+    /**
+     * Array to store elements in, as a circular array (see BetterQueue).
+     */
+    private long[] queue;
+
+    //Head of queue
+    private int head;
+
+    //Tail of queue
+    private int tail;
+
+    private int capacity;
+
+    //Metrics published by enableMetrics, or null if there are none
+    private StructureMetrics metrics;
+
+
+    /**
+     * Constructs an empty queue
+     */
+    public LongBetterQueue(){
+        this(0, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty queue that can hold expectedSize items without growing
+     *
+     * @param expectedSize number of items the queue is expected to hold
+     */
+    public LongBetterQueue(int expectedSize){
+        this(expectedSize, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an empty queue that grows and shrinks according to policy
+     *
+     * @param policy decides when the backing array grows and shrinks
+     */
+    public LongBetterQueue(CapacityPolicy policy){
+        this(0, policy);
+    }
+
+    /**
+     * Constructs an empty queue that can hold expectedSize items without growing,
+     * and grows and shrinks according to policy.  It never shrinks below its initial capacity.
+     *
+     * @param expectedSize number of items the queue is expected to hold
+     * @param policy decides when the backing array grows and shrinks
+     */
+    public LongBetterQueue(int expectedSize, CapacityPolicy policy){
+        this.policy = policy;
+        capacity = policy.initialCapacity(expectedSize);
+        minCapacity = capacity;
+        queue = new long[capacity];
+        head = 0;
+        tail = 0;
+    }
+
+    /**
+     * Add an item to the back of the queue
+     *
+     * @param item item to push
+     */
+    @Override
+    public void add(long item) {
+
+        if (size() == capacity - 1) {
+            queue = increaseSize();
+        }
+        queue[tail] = item;
+        tail = (tail + 1) % capacity;
+
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
+        }
+    }
+
+    /**
+     * Returns the front of the queue (does not remove it)
+     *
+     * @return front of the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    @Override
+    public long peek() {
+
+        if (isEmpty()) {
+            throw (new IllegalStateException("Queue is empty"));
+        }
+        return queue[head];
+    }
+
+    /**
+     * Returns and removes the front of the queue
+     *
+     * @return the head of the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    @Override
+    public long remove() {
+
+        if (isEmpty()) {
+            throw (new IllegalStateException("Queue is empty"));
+        }
+
+        long item = queue[head];
+
+        head = (head + 1) % capacity;
+
+        int newCapacity = policy.shrink(size(), capacity);
+        if (newCapacity < capacity && newCapacity >= minCapacity) {
+            queue = decreaseSize(newCapacity);
+        }
+
+        return item;
+    }
+
+    /**
+     * Adds len items from src, starting at src[off], to the back of the queue in order.
+     *
+     * The queue grows at most once, and the items are copied in with at most two
+     * System.arraycopy calls (one on each side of the point where the circular array wraps).
+     *
+     * @param src array holding the items to add
+     * @param off index in src of the first item to add
+     * @param len number of items to add
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     */
+    public void addAll(long[] src, int off, int len) {
+
+        Objects.checkFromIndexSize(off, len, src.length);
+
+        //The queue can hold at most capacity - 1 items
+        long needed = (long) size() + len + 1;
+        if (needed > capacity) {
+            int newCapacity = capacity;
+            while (needed > newCapacity) {
+                newCapacity = policy.grow(newCapacity);
+            }
+            queue = resize(newCapacity);
+        }
+
+        int first = Math.min(len, capacity - tail);
+        System.arraycopy(src, off, queue, tail, first);
+        System.arraycopy(src, off + first, queue, 0, len - first);
+        tail = (tail + len) % capacity;
+
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.sized(size());
+        }
+    }
+
+    /**
+     * Removes up to max items from the front of the queue and stores them in dst, in queue order,
+     * starting at dst[0].
+     *
+     * The items are copied out with at most two System.arraycopy calls, and the queue shrinks
+     * at most once.
+     *
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    public int drainTo(long[] dst, int max) {
+
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        int count = Math.min(max, size());
+        Objects.checkFromIndexSize(0, count, dst.length);
+
+        int first = Math.min(count, capacity - head);
+        System.arraycopy(queue, head, dst, 0, first);
+        System.arraycopy(queue, 0, dst, first, count - first);
+        head = (head + count) % capacity;
+
+        int newCapacity = capacity;
+        int next = policy.shrink(size(), newCapacity);
+        while (next < newCapacity && next >= minCapacity) {
+            newCapacity = next;
+            next = policy.shrink(size(), newCapacity);
+        }
+        if (newCapacity < capacity) {
+            queue = decreaseSize(newCapacity);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of elements in the queue
+     *
+     * @return integer representing the number of elements in the queue
+     */
+    @Override
+    public int size() {
+        int qSize;
+
+        if (tail < head) {
+            qSize = capacity + tail - head;
+        }
+        else {
+            qSize = tail - head;
+        }
+        return qSize;
+    }
+
+    /**
+     * Returns whether the queue is empty
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Writes the items to out, front first: the number of items, then each item.
+     *
+     * Only the live region of the ring is visited (in at most two runs, like resize), so a
+     * queue with a large, mostly empty backing array costs no more to write than its items.
+     *
+     * @param out where to write the items
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int size = size();
+        out.writeInt(size);
+
+        int first = Math.min(size, capacity - head);
+        for (int i = head; i < head + first; i++) {
+            out.writeLong(queue[i]);
+        }
+        for (int i = 0; i < size - first; i++) {
+            out.writeLong(queue[i]);
+        }
+    }
+
+    /**
+     * Reads a queue written by writeTo, with the default capacity policy
+     *
+     * @param in where to read the items from
+     * @return a queue holding the items, in the same order
+     * @throws IOException if in cannot be read or does not hold a queue
+     */
+    public static LongBetterQueue readFrom(DataInput in) throws IOException {
+        return readFrom(in, CapacityPolicy.DEFAULT);
+    }
+
+    /**
+     * Reads a queue written by writeTo.  The items are read straight into the new queue's
+     * array, with the head at index 0.
+     *
+     * @param in where to read the items from
+     * @param policy decides when the new queue's backing array grows and shrinks
+     * @return a queue holding the items, in the same order
+     * @throws IOException if in cannot be read or does not hold a queue
+     */
+    public static LongBetterQueue readFrom(DataInput in, CapacityPolicy policy) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw (new IOException("Bad queue size: " + size));
+        }
+
+        LongBetterQueue result = new LongBetterQueue(size, policy);
+        for (int i = 0; i < size; i++) {
+            result.queue[i] = in.readLong();
+        }
+        result.tail = size;
+        return result;
+    }
+
+    /**
+     * Publishes this queue's metrics (resizes, elements copied, peak size and footprint) under the
+     * given name, if metrics are enabled (see StructureMetrics); does nothing otherwise
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        if (StructureMetrics.ENABLED) {
+            metrics = StructureMetricsRegistry.register(name, "LongBetterQueue", 8, 1, capacity);
+            metrics.sized(size());
+        }
+    }
+
+    private long[] increaseSize() {
+        return resize(policy.grow(capacity));
+    }
+
+    private long[] decreaseSize(int newCapacity) {
+        return resize(newCapacity);
+    }
+
+    /**
+     * Moves the items into a new array of the given capacity, with the head at index 0.
+     * The live region is copied with at most two System.arraycopy calls.
+     */
+    private long[] resize(int newCapacity) {
+        StructureResizeEvent event = StructureResizeEvent.start("LongBetterQueue", capacity);
+        long[] newQueue = new long[newCapacity];
+        int size = size();
+
+        if (head > tail) {
+            System.arraycopy(queue, head, newQueue, 0, capacity - head);
+            System.arraycopy(queue, 0, newQueue, capacity - head, tail);
+        }
+        else {
+            System.arraycopy(queue, head, newQueue, 0, size);
+        }
+        event.finish(newCapacity, size);
+        if (StructureMetrics.ENABLED && metrics != null) {
+            metrics.resized(newCapacity, size);
+        }
+        tail = size;
+        head = 0;
+        capacity = newCapacity;
+        queue = null;
+
+        return newQueue;
+    }
+
+    public int getHead() {
+        return head;
+    }
+
+    public int getTail() {
+        return tail;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the queue how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
@@ -0,0 +1,51 @@
+package CommonUtils;
+
+/**
+ * Interface for a BetterQueue specialized to primitive longs.
+ *
+ * Behaves exactly like BetterQueueInterface, except that elements are stored
+ * unboxed, so there is no null value to signal an empty queue.  Instead,
+ * peek and remove throw an IllegalStateException when the queue is empty.
+ */
+public interface LongBetterQueueInterface extends LongCursor {
+    /**
+     * Add an item to the back of the queue
+     * @param item item to push
+     */
+    void add(long item);
+
+    /**
+     * Returns the front of the queue (does not remove it)
+     * @return front of the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    @Override
+    long peek();
+
+    /**
+     * Returns and removes the front of the queue
+     * @return the head of the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    @Override
+    long remove();
+
+    /**
+     * Returns the number of elements in the queue
+     * @return integer representing the number of elements in the queue
+     */
+    int size();
+
+    /**
+     * Returns whether the queue is empty
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    boolean isEmpty();
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     * @param g graphics object to draw on
+     */
+    void draw(java.awt.Graphics g);
+}
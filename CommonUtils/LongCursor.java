@@ -0,0 +1,36 @@
+package CommonUtils;
+
+/**
+ * Read-only view of the front of a sequence of longs.
+ *
+ * Anything that only ever looks at and consumes its head (a LongBetterQueue, or a
+ * cursor walking through a file) can be handed to code written against this interface.
+ *
+ * A sequence held in memory throws an IllegalStateException when peek or remove is called on it
+ * while it is empty.  A cursor over a file (MappedNumberCursor, BinaryTraceCursor, NumberTokenizer's
+ * asCursor, PipelinedLongCursor) throws an UncheckedIOException wrapping an EOFException instead, so
+ * an input that ends too early fails the same way whichever reader walks it.
+ */
+public interface LongCursor {
+    /**
+     * Returns the front of the sequence (does not consume it)
+     * @return front of the sequence
+     * @throws IllegalStateException if the sequence is empty and held in memory
+     * @throws java.io.UncheckedIOException wrapping an EOFException if the sequence is read from a file and is empty
+     */
+    long peek();
+
+    /**
+     * Returns and consumes the front of the sequence
+     * @return the front of the sequence
+     * @throws IllegalStateException if the sequence is empty and held in memory
+     * @throws java.io.UncheckedIOException wrapping an EOFException if the sequence is read from a file and is empty
+     */
+    long remove();
+
+    /**
+     * Returns whether the sequence is empty
+     * @return true if there are no more values, false otherwise
+     */
+    boolean isEmpty();
+}
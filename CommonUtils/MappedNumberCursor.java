@@ -0,0 +1,222 @@
+package CommonUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Walks through the whitespace-separated ASCII integers of a file by memory-mapping it.
+ *
+ * Only a fixed-size window of the file is mapped at a time, and the window slides forward
+ * as the cursor advances, so files much larger than the heap (or than 2 GiB) can be read.
+ * Nothing is buffered on the heap apart from the number currently at the front.
+ *
+ * Several cursors can walk different sections of the same file independently.
+ */
+public class MappedNumberCursor implements NumberFileCursor {
+
+    /**
+     * Number of bytes mapped at a time.  A single number must be shorter than this.
+     */
+    private final long WINDOW_SIZE = 1L << 24; // 16 MiB
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    //Currently mapped part of the file, starting at windowStart
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    //File offset of the first byte not yet consumed
+    private long offset;
+
+    //Front of the sequence, once it has been decoded by peek()
+    private boolean hasPeeked;
+    private long peeked;
+    private long peekedEnd;
+
+
+    /**
+     * Opens a cursor at the start of the given file
+     *
+     * @param filename file to read numbers from
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedNumberCursor(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        fileSize = channel.size();
+        window = null;
+        windowStart = 0;
+        windowEnd = 0;
+        offset = 0;
+        hasPeeked = false;
+    }
+
+    /**
+     * Returns the front of the sequence (does not consume it)
+     *
+     * @return front of the sequence
+     * @throws NumberFormatException if the next token is not a valid long
+     * @throws UncheckedIOException if the file cannot be mapped, or wrapping an EOFException if there
+     *                              are no numbers left
+     */
+    @Override
+    public long peek() {
+        if (!hasPeeked) {
+            if (isEmpty()) {
+                throw (new UncheckedIOException(new EOFException("No numbers left to read")));
+            }
+            decode();
+            hasPeeked = true;
+        }
+        return peeked;
+    }
+
+    /**
+     * Returns and consumes the front of the sequence
+     *
+     * @return the front of the sequence
+     * @throws NumberFormatException if the next token is not a valid long
+     * @throws UncheckedIOException if the file cannot be mapped, or wrapping an EOFException if there
+     *                              are no numbers left
+     */
+    @Override
+    public long remove() {
+        long value = peek();
+        offset = peekedEnd;
+        hasPeeked = false;
+        return value;
+    }
+
+    /**
+     * Consumes the next count numbers without returning them
+     *
+     * @param count how many numbers to skip
+     * @throws UncheckedIOException wrapping an EOFException if fewer than count numbers are left
+     */
+    @Override
+    public void skip(long count) {
+        for (long i = 0; i < count; i++) {
+            remove();
+        }
+    }
+
+    /**
+     * Returns the file offset of the first byte not yet consumed
+     *
+     * @return byte offset of the front of the sequence (or of the whitespace before it)
+     */
+    @Override
+    public long position() {
+        return offset;
+    }
+
+    /**
+     * Moves the cursor to the given file offset, which must be the start of a number or of
+     * the whitespace before one (such as an offset returned by position())
+     *
+     * @param position byte offset to move to
+     * @throws IOException if position is outside the file
+     */
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0 || position > fileSize) {
+            throw (new IOException("Offset " + position + " is outside the file"));
+        }
+        offset = position;
+        hasPeeked = false;
+    }
+
+    /**
+     * Returns whether there are no numbers left, skipping any whitespace before the next one
+     *
+     * @return true if the cursor is at the end of the file, false otherwise
+     * @throws UncheckedIOException if the file cannot be mapped
+     */
+    @Override
+    public boolean isEmpty() {
+        if (hasPeeked) {
+            return false;
+        }
+        while (offset < fileSize && byteAt(offset) <= ' ') {
+            offset++;
+        }
+        return offset >= fileSize;
+    }
+
+    /**
+     * Decodes the number starting at offset into peeked and peekedEnd.
+     * Assumes whitespace before it has already been skipped.
+     */
+    private void decode() {
+        long pos = offset;
+        boolean negative = false;
+        long value = 0;
+        int digits = 0;
+
+        byte b = byteAt(pos);
+        if (b == '-' || b == '+') {
+            negative = (b == '-');
+            pos++;
+        }
+
+        while (pos < fileSize) {
+            b = byteAt(pos);
+            if (b < '0' || b > '9') {
+                if (b > ' ') { //Token continues with something that isn't a digit
+                    throw (new NumberFormatException("Unexpected character '" + (char) b + "' in number"));
+                }
+                break;
+            }
+            if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                throw (new NumberFormatException("Number does not fit in a long"));
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            pos++;
+        }
+
+        if (digits == 0) {
+            throw (new NumberFormatException("Expected a number"));
+        }
+        peeked = negative ? -value : value;
+        peekedEnd = pos;
+    }
+
+    /**
+     * Returns the byte at the given file offset, sliding the mapped window if needed
+     */
+    private byte byteAt(long position) {
+        if (position < windowStart || position >= windowEnd) {
+            map(position);
+        }
+        return window.get((int) (position - windowStart));
+    }
+
+    private void map(long position) {
+        long size = Math.min(WINDOW_SIZE, fileSize - position);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+        windowStart = position;
+        windowEnd = position + size;
+    }
+
+    /**
+     * Closes the underlying file.  The last mapped window is released once it is garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,56 @@
+package CommonUtils;
+
+import java.io.IOException;
+
+/**
+ * A LongCursor over the numbers stored in a file, in either of the formats the drone managers read:
+ * whitespace-separated ASCII integers (MappedNumberCursor) or a binary trace (BinaryTraceCursor).
+ * Both hand out exactly the same sequence of numbers for the same input.
+ */
+public interface NumberFileCursor extends LongCursor, AutoCloseable {
+    /**
+     * Consumes the next count numbers without returning them
+     *
+     * @param count how many numbers to skip
+     * @throws java.io.UncheckedIOException wrapping an EOFException if fewer than count numbers are left
+     */
+    void skip(long count);
+
+    /**
+     * Returns where the front of the sequence is in the file, for seek() to come back to
+     * later (also through another cursor over the same file)
+     *
+     * @return position of the front of the sequence
+     */
+    long position();
+
+    /**
+     * Moves the cursor to a position returned by position(), without reading the numbers before it
+     *
+     * @param position position to move to
+     * @throws IOException if the file cannot be read or position is not a position in it
+     */
+    void seek(long position) throws IOException;
+
+    /**
+     * Closes the underlying file
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Opens a cursor at the start of the given file, picking the reader that matches its format
+     *
+     * @param filename file to read numbers from
+     * @return a BinaryTraceCursor if the file is a binary trace, a MappedNumberCursor otherwise
+     * @throws IOException if the file cannot be opened
+     */
+    static NumberFileCursor open(String filename) throws IOException {
+        if (BinaryTraceCursor.isBinaryTrace(filename)) {
+            return new BinaryTraceCursor(filename);
+        }
+        return new MappedNumberCursor(filename);
+    }
+}
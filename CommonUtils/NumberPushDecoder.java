@@ -0,0 +1,140 @@
+package CommonUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes whitespace-separated ASCII integers from bytes pushed into it, handing each number to a
+ * Receiver as soon as it is complete.
+ *
+ * This is NumberTokenizer turned inside out: instead of pulling bytes from a file when asked for
+ * the next number, it is given whatever bytes have arrived (e.g. from an asynchronous read) and keeps
+ * the number it is in the middle of across calls, so buffers may split a number anywhere.  Numbers
+ * follow the same rules as NumberTokenizer's, and decoding them never allocates.
+ */
+public class NumberPushDecoder {
+
+    /**
+     * Receives the numbers decoded by a NumberPushDecoder, in order.
+     */
+    public interface Receiver {
+        /**
+         * Called with each number decoded
+         *
+         * @param value the number
+         * @return true to keep decoding, false if no more numbers are needed
+         */
+        boolean accept(long value);
+
+        /**
+         * Called once after the last number, at the end of the input or once accept has returned false
+         *
+         * @throws IOException if the input ended before all the numbers needed
+         */
+        void end() throws IOException;
+    }
+
+    private final Receiver receiver;
+
+    //Number being decoded, if inToken: its sign, the value of its digits so far, and how many there are
+    private boolean inToken;
+    private boolean negative;
+    private long value;
+    private int digits;
+
+    //Set once the receiver has returned false
+    private boolean stopped;
+
+    //Number of numbers handed to the receiver
+    private long count;
+
+
+    /**
+     * Constructs a decoder at the start of the input
+     *
+     * @param receiver receives the numbers decoded
+     */
+    public NumberPushDecoder(Receiver receiver) {
+        this.receiver = receiver;
+        inToken = false;
+        stopped = false;
+        count = 0;
+    }
+
+    /**
+     * Decodes the bytes from the buffer's position to its limit, handing every number completed in
+     * them to the receiver.  The buffer is consumed up to where decoding stopped.
+     *
+     * @param bytes next bytes of the input
+     * @return true if more input is wanted, false once the receiver has asked to stop
+     * @throws NumberFormatException if the input holds something that is not a valid long
+     */
+    public boolean feed(ByteBuffer bytes) {
+        int pos = bytes.position();
+        int limit = bytes.limit();
+
+        while (pos < limit && !stopped) {
+            byte b = bytes.get(pos++);
+
+            if (b <= ' ') { //Whitespace ends the number, if there is one
+                if (inToken) {
+                    emit();
+                }
+                continue;
+            }
+            if (!inToken) {
+                inToken = true;
+                negative = false;
+                value = 0;
+                digits = 0;
+                if (b == '-' || b == '+') {
+                    negative = (b == '-');
+                    continue;
+                }
+            }
+            if (b < '0' || b > '9') {
+                bytes.position(pos);
+                throw (new NumberFormatException("Unexpected character '" + (char) b + "' in number"));
+            }
+            if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                bytes.position(pos);
+                throw (new NumberFormatException("Number does not fit in a long"));
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+        }
+        bytes.position(pos);
+        return !stopped;
+    }
+
+    /**
+     * Ends the input: hands the receiver the number it ends with, if any, then calls its end method
+     *
+     * @throws NumberFormatException if the input ends in the middle of something that is not a valid long
+     * @throws IOException if the receiver needed more numbers
+     */
+    public void finish() throws IOException {
+        if (inToken && !stopped) {
+            emit();
+        }
+        receiver.end();
+    }
+
+    /**
+     * Returns the number of numbers handed to the receiver so far
+     *
+     * @return number of numbers decoded
+     */
+    public long count() {
+        return count;
+    }
+
+    private void emit() {
+        inToken = false;
+        if (digits == 0) {
+            throw (new NumberFormatException("Expected a number"));
+        }
+        count++;
+        stopped = !receiver.accept(negative ? -value : value);
+    }
+}
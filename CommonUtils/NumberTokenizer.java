@@ -0,0 +1,225 @@
+package CommonUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads whitespace-separated ASCII integers from a file.
+ *
+ * The file is read through a FileChannel into a single reusable direct ByteBuffer, and
+ * numbers are decoded straight from the bytes, so reading a token never allocates (unlike
+ * Scanner, which runs a regex per token, or BufferedReader + split, which creates a String
+ * per token).  Tokens may be separated by any mix of spaces, tabs and line breaks.
+ */
+public class NumberTokenizer implements AutoCloseable {
+
+    /**
+     * Size of the read buffer in bytes.
+     */
+    private final int BUFFER_SIZE = 1 << 16; // 64 KiB
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    //Set once the channel has returned end of file
+    private boolean eof;
+
+
+    /**
+     * Opens a tokenizer over the given file
+     *
+     * @param filename file to read numbers from
+     * @throws IOException if the file cannot be opened
+     */
+    public NumberTokenizer(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip(); //Start out with nothing to read
+        eof = false;
+    }
+
+    /**
+     * Returns whether there is another number in the file, skipping any whitespace before it
+     *
+     * @return true if another token follows, false at end of file
+     * @throws IOException if the file cannot be read
+     */
+    public boolean hasNext() throws IOException {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+
+        while (true) {
+            if (pos == limit) {
+                buffer.position(pos);
+                if (!fill()) {
+                    return false;
+                }
+                pos = buffer.position();
+                limit = buffer.limit();
+            }
+            if (buffer.get(pos) > ' ') {
+                buffer.position(pos);
+                return true;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Reads the next number as a long
+     *
+     * @return the next number in the file
+     * @throws EOFException if there are no numbers left
+     * @throws NumberFormatException if the next token is not a valid long
+     * @throws IOException if the file cannot be read
+     */
+    public long nextLong() throws IOException {
+        if (!hasNext()) {
+            throw (new EOFException("No numbers left to read"));
+        }
+
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        boolean negative = false;
+        long value = 0;
+        int digits = 0;
+
+        byte b = buffer.get(pos);
+        if (b == '-' || b == '+') {
+            negative = (b == '-');
+            pos++;
+        }
+
+        while (true) {
+            if (pos == limit) {
+                buffer.position(pos);
+                if (!fill()) {
+                    pos = buffer.position(); //The number ends the file, and the buffer is now empty
+                    break;
+                }
+                pos = buffer.position();
+                limit = buffer.limit();
+            }
+            b = buffer.get(pos);
+            if (b < '0' || b > '9') {
+                if (b > ' ') { //Token continues with something that isn't a digit
+                    buffer.position(pos);
+                    throw (new NumberFormatException("Unexpected character '" + (char) b + "' in number"));
+                }
+                break;
+            }
+            if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                buffer.position(pos);
+                throw (new NumberFormatException("Number does not fit in a long"));
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            pos++;
+        }
+        buffer.position(pos);
+
+        if (digits == 0) {
+            throw (new NumberFormatException("Expected a number"));
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next number as an int
+     *
+     * @return the next number in the file
+     * @throws EOFException if there are no numbers left
+     * @throws NumberFormatException if the next token is not a valid int
+     * @throws IOException if the file cannot be read
+     */
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw (new NumberFormatException("Number does not fit in an int: " + value));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Returns a LongCursor over the numbers left in the file.  The cursor reads from this
+     * tokenizer, so it is only valid until the tokenizer is closed.  Because LongCursor methods
+     * cannot throw IOException, read errors are wrapped in an UncheckedIOException (running
+     * out of numbers is reported as an EOFException, like nextLong does).
+     *
+     * @return a cursor over the remaining numbers
+     */
+    public LongCursor asCursor() {
+        return new LongCursor() {
+            //Front of the sequence, once it has been read by peek()
+            private boolean hasPeeked = false;
+            private long peeked;
+
+            @Override
+            public long peek() {
+                if (!hasPeeked) {
+                    try {
+                        peeked = nextLong();
+                    } catch (IOException e) {
+                        throw (new UncheckedIOException(e));
+                    }
+                    hasPeeked = true;
+                }
+                return peeked;
+            }
+
+            @Override
+            public long remove() {
+                long value = peek();
+                hasPeeked = false;
+                return value;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                try {
+                    return !hasPeeked && !hasNext();
+                } catch (IOException e) {
+                    throw (new UncheckedIOException(e));
+                }
+            }
+        };
+    }
+
+    /**
+     * Refills the buffer from the channel, discarding what has already been consumed
+     *
+     * @return true if at least one new byte is available, false at end of file
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the underlying file
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,189 @@
+package CommonUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes ASCII integers to a file, the counterpart of NumberTokenizer.
+ *
+ * Numbers are formatted digit by digit straight into a single reusable direct ByteBuffer, which
+ * is written to a FileChannel whenever it fills up, so writing a number never allocates (unlike
+ * Long.toString or String.format, which create at least one String per number, plus whatever a
+ * Writer does to encode it).
+ */
+public class NumberWriter implements AutoCloseable {
+
+    /**
+     * Size of the write buffer in bytes.
+     */
+    private final int BUFFER_SIZE = 1 << 16; // 64 KiB
+
+    /**
+     * Longest number: 19 digits and a sign.
+     */
+    private static final int MAX_DIGITS = 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    //Digits of the number being formatted, filled from the end
+    private final byte[] digits;
+
+
+    /**
+     * Creates (or replaces) the given file and opens a writer over it
+     *
+     * @param filename file to write numbers to
+     * @throws IOException if the file cannot be opened
+     */
+    public NumberWriter(String filename) throws IOException {
+        this(FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    private NumberWriter(FileChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        digits = new byte[MAX_DIGITS];
+    }
+
+    /**
+     * Opens a writer that carries on the given file after its first keepLines lines, dropping
+     * everything after them (such as a run's output written after its last checkpoint)
+     *
+     * @param filename file to write numbers to (created if it does not exist and keepLines is 0)
+     * @param keepLines number of lines to keep
+     * @return a writer positioned after the kept lines
+     * @throws IOException if the file cannot be opened or has fewer than keepLines lines
+     */
+    public static NumberWriter append(String filename, long keepLines) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            NumberWriter writer = new NumberWriter(channel);
+            ByteBuffer buffer = writer.buffer;
+
+            //Find the end of the last kept line, reading through the write buffer
+            long offset = 0;
+            long lines = 0;
+            while (lines < keepLines) {
+                buffer.clear();
+                if (channel.read(buffer, offset) < 0) {
+                    throw (new IOException(filename + " has fewer than " + keepLines + " lines"));
+                }
+                buffer.flip();
+                while (buffer.hasRemaining() && lines < keepLines) {
+                    if (buffer.get() == '\n') {
+                        lines++;
+                    }
+                }
+                offset += buffer.position();
+            }
+            buffer.clear();
+
+            channel.truncate(offset);
+            channel.position(offset);
+            return writer;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a number in decimal
+     *
+     * @param value number to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeLong(long value) throws IOException {
+        if (buffer.remaining() < MAX_DIGITS) {
+            flush();
+        }
+
+        int pos = MAX_DIGITS;
+        //Work with the negative value, so Long.MIN_VALUE does not overflow
+        long negative = value < 0 ? value : -value;
+        do {
+            digits[--pos] = (byte) ('0' - (negative % 10));
+            negative /= 10;
+        } while (negative != 0);
+        if (value < 0) {
+            digits[--pos] = '-';
+        }
+        buffer.put(digits, pos, MAX_DIGITS - pos);
+    }
+
+    /**
+     * Writes a number in decimal
+     *
+     * @param value number to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    /**
+     * Writes a single ASCII character, such as a separator
+     *
+     * @param c character to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeChar(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Ends the current line
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void newLine() throws IOException {
+        writeChar('\n');
+    }
+
+    /**
+     * Writes everything buffered so far to the file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes everything buffered so far to the file, and forces the file's contents
+     * to the storage device, so they survive a crash
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void sync() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    /**
+     * Writes everything buffered and closes the file
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package CommonUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A queue of longs stored outside the Java heap, for queues too large to keep in one array.
+ *
+ * LongBetterQueue keeps its items in a single long[], which the garbage collector has to manage
+ * (and copy, for some collectors), and which cannot have more than Integer.MAX_VALUE slots.  This
+ * queue keeps its items in fixed-size chunks of native memory (direct ByteBuffers), held in a small
+ * circular array of chunks that works like the circular array of BetterQueue, one level up:
+ *   - adding to a full last chunk appends a new chunk; items are never copied
+ *   - removing the last item of the first chunk releases that chunk
+ *   - the number of items is a long, so the queue is only limited by native memory
+ *     (see -XX:MaxDirectMemorySize, which defaults to the maximum heap size)
+ * One released chunk is kept for reuse, so a queue hovering around a chunk boundary does not
+ * allocate and free native memory over and over.
+ *
+ * Native memory is freed when the queue is closed, straight away if the JVM allows it (through
+ * sun.misc.Unsafe.invokeCleaner), or otherwise once the chunks are garbage collected.  A closed queue
+ * is empty, and cannot be added to.
+ */
+public class OffHeapLongQueue implements LongBetterQueueInterface, AutoCloseable {
+
+    /**
+     * Default number of items in a chunk: 1M items, 8 MiB of native memory.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    //Frees a direct ByteBuffer's memory right away, or null if this JVM does not allow it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //Leave freeing to the garbage collector
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    //Number of items in a chunk
+    private final int chunkSize;
+
+    //Circular array of chunks; chunk i of the queue is at index (firstChunk + i) % chunks.length.
+    //Each chunk's memory is kept as a ByteBuffer (to free it) and viewed as a LongBuffer (to use it)
+    private ByteBuffer[] chunks;
+    private LongBuffer[] longs;
+    private int firstChunk;
+    private int chunkCount;
+
+    //Index of the head in the first chunk, and of the next free slot in the last chunk
+    private int head;
+    private int tail;
+
+    private long size;
+
+    //A released chunk kept for reuse, or null
+    private ByteBuffer spare;
+
+    private boolean closed;
+
+
+    /**
+     * Constructs an empty queue with chunks of DEFAULT_CHUNK_SIZE items
+     */
+    public OffHeapLongQueue() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an empty queue with chunks of the given number of items.  No native memory
+     * is allocated until the first item is added.
+     *
+     * @param chunkSize number of items in a chunk
+     * @throws IllegalArgumentException if chunkSize is not positive, or a chunk would not fit in a ByteBuffer
+     */
+    public OffHeapLongQueue(int chunkSize) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE / Long.BYTES) {
+            throw (new IllegalArgumentException("Bad chunk size: " + chunkSize));
+        }
+        this.chunkSize = chunkSize;
+        chunks = new ByteBuffer[8];
+        longs = new LongBuffer[8];
+        firstChunk = 0;
+        chunkCount = 0;
+        head = 0;
+        tail = chunkSize; //No last chunk, so the first add appends one
+        size = 0;
+        spare = null;
+        closed = false;
+    }
+
+    /**
+     * Add an item to the back of the queue
+     *
+     * @param item item to push
+     * @throws IllegalStateException if the queue has been closed
+     * @throws OutOfMemoryError if there is not enough native memory for another chunk
+     */
+    @Override
+    public void add(long item) {
+        if (tail == chunkSize) {
+            appendChunk();
+        }
+        longs[(firstChunk + chunkCount - 1) % longs.length].put(tail++, item);
+        size++;
+    }
+
+    /**
+     * Returns the front of the queue (does not remove it)
+     *
+     * @return front of the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    @Override
+    public long peek() {
+        if (size == 0) {
+            throw (new IllegalStateException("Queue is empty"));
+        }
+        return longs[firstChunk].get(head);
+    }
+
+    /**
+     * Returns and removes the front of the queue
+     *
+     * @return the head of the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    @Override
+    public long remove() {
+        if (size == 0) {
+            throw (new IllegalStateException("Queue is empty"));
+        }
+        long item = longs[firstChunk].get(head++);
+        size--;
+
+        if (size == 0) { //Start over at the front of the only chunk left
+            head = 0;
+            tail = 0;
+        }
+        else if (head == chunkSize) {
+            releaseFirstChunk();
+        }
+        return item;
+    }
+
+    /**
+     * Returns the number of elements in the queue, or Integer.MAX_VALUE if there are more
+     * than that (see longSize())
+     *
+     * @return integer representing the number of elements in the queue
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of elements in the queue
+     *
+     * @return number of elements in the queue
+     */
+    public long longSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether the queue is empty
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the amount of native memory the queue holds, including the spare chunk
+     *
+     * @return number of bytes
+     */
+    public long nativeBytes() {
+        return ((long) chunkCount + (spare != null ? 1 : 0)) * chunkSize * Long.BYTES;
+    }
+
+    /**
+     * Empties the queue and frees its native memory
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (int i = 0; i < chunkCount; i++) {
+            int index = (firstChunk + i) % chunks.length;
+            free(chunks[index]);
+            chunks[index] = null;
+            longs[index] = null;
+        }
+        if (spare != null) {
+            free(spare);
+            spare = null;
+        }
+        firstChunk = 0;
+        chunkCount = 0;
+        head = 0;
+        tail = chunkSize;
+        size = 0;
+    }
+
+    /**
+     * Adds a chunk after the last one
+     */
+    private void appendChunk() {
+        if (closed) {
+            throw (new IllegalStateException("Queue is closed"));
+        }
+        if (chunkCount == chunks.length) {
+            growChunkArray();
+        }
+
+        ByteBuffer chunk = spare;
+        spare = null;
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(chunkSize * Long.BYTES).order(ByteOrder.nativeOrder());
+        }
+        int index = (firstChunk + chunkCount) % chunks.length;
+        chunks[index] = chunk;
+        longs[index] = chunk.asLongBuffer();
+        chunkCount++;
+        tail = 0;
+    }
+
+    /**
+     * Drops the first chunk, all of whose items have been removed, keeping it as the spare
+     * (or freeing it, if there already is one)
+     */
+    private void releaseFirstChunk() {
+        if (spare == null) {
+            spare = chunks[firstChunk];
+        }
+        else {
+            free(chunks[firstChunk]);
+        }
+        chunks[firstChunk] = null;
+        longs[firstChunk] = null;
+        firstChunk = (firstChunk + 1) % chunks.length;
+        chunkCount--;
+        head = 0;
+    }
+
+    /**
+     * Moves the chunks into arrays twice the size, with the first chunk at index 0.  Only the
+     * references are copied, never the items.
+     */
+    private void growChunkArray() {
+        ByteBuffer[] newChunks = new ByteBuffer[chunks.length * 2];
+        LongBuffer[] newLongs = new LongBuffer[longs.length * 2];
+        for (int i = 0; i < chunkCount; i++) {
+            newChunks[i] = chunks[(firstChunk + i) % chunks.length];
+            newLongs[i] = longs[(firstChunk + i) % longs.length];
+        }
+        chunks = newChunks;
+        longs = newLongs;
+        firstChunk = 0;
+    }
+
+    /**
+     * Frees a chunk's native memory now if possible (otherwise the garbage collector will)
+     */
+    private static void free(ByteBuffer chunk) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, chunk);
+        } catch (ReflectiveOperationException e) {
+            //Leave it to the garbage collector
+        }
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(java.awt.Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the queue how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
@@ -0,0 +1,221 @@
+package CommonUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Decodes a LongCursor on a background thread while the caller consumes the values.
+ *
+ * A producer thread reads numbers from the source, packs them into fixed-size long[] chunks
+ * and hands full chunks to the caller through a SpscBetterQueue.  Emptied chunks travel back
+ * through a second SpscBetterQueue to be refilled, so once the pipeline is primed it does not
+ * allocate.  Parsing the next chunk therefore overlaps with whatever the caller does with the
+ * current one, and the two threads only synchronize once per chunk instead of once per number.
+ *
+ * The end of the input is marked by a chunk holding no values.  If the producer fails, the
+ * exception is rethrown to the caller once it has consumed everything decoded before the
+ * failure (an IOException is wrapped in an UncheckedIOException, like MappedNumberCursor does).
+ * Like the file cursors it reads, it reports running out of values as an UncheckedIOException
+ * wrapping an EOFException.
+ *
+ * After construction the source belongs to the producer thread; the caller must not touch it
+ * again until close() has returned.
+ */
+public class PipelinedLongCursor implements LongCursor, AutoCloseable {
+
+    /**
+     * Number of values per chunk.  Slot 0 of a chunk holds the number of values in it.
+     */
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    /**
+     * Number of chunks that can be decoded ahead of the caller.
+     */
+    private static final int CHUNKS_IN_FLIGHT = 1 << 4;
+
+    //Decoded chunks, producer -> consumer
+    private final SpscBetterQueue<long[]> full;
+
+    //Consumed chunks, consumer -> producer, to be reused
+    private final SpscBetterQueue<long[]> empty;
+
+    private final Thread producer;
+
+    //Set by the producer if reading the source fails, read by the consumer after the end marker
+    private volatile Throwable failure;
+
+    //Set by close() to make the producer stop early
+    private volatile boolean closed;
+
+    //Consumer state: current chunk and position in it
+    private long[] current;
+    private int pos;
+    private int limit;
+    private boolean done;
+
+
+    /**
+     * Starts decoding count values from source, after discarding the first skip values
+     *
+     * @param source cursor to read values from (handed over to the producer thread)
+     * @param skip number of values to discard before the first one returned
+     * @param count largest number of values to return (Long.MAX_VALUE to read until source is empty)
+     * @param name name of the producer thread
+     */
+    public PipelinedLongCursor(LongCursor source, long skip, long count, String name) {
+        full = new SpscBetterQueue<>(CHUNKS_IN_FLIGHT);
+        empty = new SpscBetterQueue<>(CHUNKS_IN_FLIGHT);
+        current = null;
+        pos = 0;
+        limit = 0;
+        done = false;
+
+        producer = new Thread(() -> produce(source, skip, count), name);
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * Body of the producer thread
+     */
+    private void produce(LongCursor source, long skip, long count) {
+        try {
+            for (long i = 0; i < skip && !closed; i++) {
+                source.remove();
+            }
+
+            long remaining = count;
+            while (remaining > 0 && !closed && !source.isEmpty()) {
+                long[] chunk = empty.remove();
+                if (chunk == null) {
+                    chunk = new long[CHUNK_SIZE + 1];
+                }
+
+                int n = 0;
+                while (n < CHUNK_SIZE && remaining > 0 && !source.isEmpty()) {
+                    chunk[++n] = source.remove();
+                    remaining--;
+                }
+                chunk[0] = n;
+                publish(chunk);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            publish(new long[] {0});
+        }
+    }
+
+    /**
+     * Hands a chunk to the consumer, waiting for room unless the cursor has been closed
+     */
+    private void publish(long[] chunk) {
+        int spins = 0;
+        while (!full.offer(chunk)) {
+            if (closed) {
+                return;
+            }
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Moves to the next chunk, waiting for the producer if it is not ready yet
+     */
+    private void nextChunk() {
+        if (current != null) {
+            empty.offer(current); //If the producer already has enough spare chunks, let this one go
+            current = null;
+        }
+
+        int spins = 0;
+        long[] chunk;
+        while ((chunk = full.remove()) == null) {
+            spins = Backoff.pause(spins);
+        }
+
+        if (chunk[0] == 0) { //End marker
+            done = true;
+            Throwable e = failure;
+            if (e instanceof IOException) {
+                throw (new UncheckedIOException((IOException) e));
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return;
+        }
+        current = chunk;
+        pos = 1;
+        limit = (int) chunk[0] + 1;
+    }
+
+    /**
+     * Returns the front of the sequence (does not consume it)
+     *
+     * @return front of the sequence
+     * @throws UncheckedIOException if the producer could not read the source, or wrapping an
+     *                              EOFException if the sequence is empty
+     */
+    @Override
+    public long peek() {
+        if (isEmpty()) {
+            throw (new UncheckedIOException(new EOFException("No numbers left to read")));
+        }
+        return current[pos];
+    }
+
+    /**
+     * Returns and consumes the front of the sequence
+     *
+     * @return the front of the sequence
+     * @throws UncheckedIOException if the producer could not read the source, or wrapping an
+     *                              EOFException if the sequence is empty
+     */
+    @Override
+    public long remove() {
+        if (isEmpty()) {
+            throw (new UncheckedIOException(new EOFException("No numbers left to read")));
+        }
+        return current[pos++];
+    }
+
+    /**
+     * Returns whether the sequence is empty, waiting for the producer if necessary
+     *
+     * @return true if there are no more values, false otherwise
+     * @throws UncheckedIOException if the producer could not read the source
+     */
+    @Override
+    public boolean isEmpty() {
+        while (pos == limit && !done) {
+            nextChunk();
+        }
+        return pos == limit;
+    }
+
+    /**
+     * Stops the producer thread and waits for it to finish, after which the source
+     * may be used (and closed) by the caller again
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                producer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package CommonUtils;
+
+import java.util.Objects;
+
+/**
+ * A queue made of linked fixed-size chunks instead of one circular array.
+ *
+ * BetterQueue grows by allocating an array twice the size and copying every element into it, so the
+ * add that triggers it takes time proportional to the size of the queue, and for a moment both arrays
+ * (three times the elements) are alive at once.  This queue never copies: adding to a full last chunk
+ * links a new chunk after it, and removing the last element of the first chunk unlinks that chunk.
+ * Chunks come from and go back to a ChunkPool, so every add and remove takes bounded O(1) time,
+ * whatever the size of the queue, and a queue that keeps hovering around the same size allocates
+ * nothing.  This matters more than raw throughput inside a fixed time budget, such as a game tick.
+ *
+ * The price is a little more work per operation than BetterQueue (see QueueStackBenchmarks).
+ *
+ * @param <E> the type of object this queue will be holding
+ */
+public class SegmentedBetterQueue<E> implements BetterQueueInterface<E> {
+
+    private final ChunkPool pool;
+    private final int chunkSize;
+
+    //First chunk and index of the head in it, last chunk and index of the next free slot in it
+    private ChunkPool.Chunk headChunk;
+    private int head;
+    private ChunkPool.Chunk tailChunk;
+    private int tail;
+
+    private int size;
+
+
+    /**
+     * Constructs an empty queue with its own pool of ChunkPool.DEFAULT_CHUNK_SIZE-element chunks
+     */
+    public SegmentedBetterQueue() {
+        this(new ChunkPool());
+    }
+
+    /**
+     * Constructs an empty queue that takes its chunks from the given pool
+     *
+     * @param pool pool to take chunks from and give them back to (only share it between structures used by the same thread)
+     */
+    public SegmentedBetterQueue(ChunkPool pool) {
+        this.pool = pool;
+        chunkSize = pool.getChunkSize();
+        headChunk = pool.take();
+        tailChunk = headChunk;
+        head = 0;
+        tail = 0;
+        size = 0;
+    }
+
+    /**
+     * Add an item to the back of the queue
+     *
+     * @param item item to push
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void add(E item) {
+
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        if (tail == chunkSize) {
+            appendChunk();
+        }
+        tailChunk.items[tail++] = item;
+        size++;
+    }
+
+    /**
+     * Returns the front of the queue (does not remove it) or <code>null</code> if the queue is empty
+     *
+     * @return front of the queue or <code>null</code> if the queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        if (size == 0) {
+            return null;
+        }
+        return (E) headChunk.items[head];
+    }
+
+    /**
+     * Returns and removes the front of the queue
+     *
+     * @return the head of the queue, or <code>null</code> if this queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove() {
+
+        if (size == 0) {
+            return null;
+        }
+
+        E item = (E) headChunk.items[head];
+        headChunk.items[head++] = null;
+        size--;
+
+        if (size == 0) { //Start over at the front of the only chunk left
+            head = 0;
+            tail = 0;
+        }
+        else if (head == chunkSize) {
+            releaseHeadChunk();
+        }
+        return item;
+    }
+
+    /**
+     * Adds len items from src, starting at src[off], to the back of the queue in order,
+     * copying them in with one System.arraycopy per chunk.
+     *
+     * @param src array holding the items to add
+     * @param off index in src of the first item to add
+     * @param len number of items to add
+     * @throws NullPointerException if any of the items is null (nothing is added in that case)
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     */
+    @Override
+    public void addAll(E[] src, int off, int len) {
+
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw (new NullPointerException());
+            }
+        }
+
+        while (len > 0) {
+            if (tail == chunkSize) {
+                appendChunk();
+            }
+            int step = Math.min(len, chunkSize - tail);
+            System.arraycopy(src, off, tailChunk.items, tail, step);
+            tail += step;
+            size += step;
+            off += step;
+            len -= step;
+        }
+    }
+
+    /**
+     * Removes up to max items from the front of the queue and stores them in dst, in queue order,
+     * starting at dst[0], copying them out with one System.arraycopy per chunk.
+     *
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    @Override
+    public int drainTo(E[] dst, int max) {
+
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        int count = Math.min(max, size);
+        Objects.checkFromIndexSize(0, count, dst.length);
+
+        int done = 0;
+        while (done < count) {
+            int step = Math.min(count - done, (headChunk == tailChunk ? tail : chunkSize) - head);
+            System.arraycopy(headChunk.items, head, dst, done, step);
+
+            //Drop references to the removed items so they can be garbage collected
+            for (int i = head; i < head + step; i++) {
+                headChunk.items[i] = null;
+            }
+            head += step;
+            size -= step;
+            done += step;
+
+            if (size == 0) {
+                head = 0;
+                tail = 0;
+            }
+            else if (head == chunkSize) {
+                releaseHeadChunk();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of elements in the queue
+     *
+     * @return integer representing the number of elements in the queue
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the queue is empty
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void appendChunk() {
+        ChunkPool.Chunk chunk = pool.take();
+        chunk.prev = tailChunk;
+        tailChunk.next = chunk;
+        tailChunk = chunk;
+        tail = 0;
+    }
+
+    private void releaseHeadChunk() {
+        ChunkPool.Chunk old = headChunk;
+        headChunk = old.next;
+        headChunk.prev = null;
+        pool.give(old);
+        head = 0;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(java.awt.Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the queue how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
@@ -0,0 +1,246 @@
+package CommonUtils;
+
+import java.util.EmptyStackException;
+import java.util.Objects;
+
+/**
+ * A stack made of linked fixed-size chunks instead of one array.
+ *
+ * BetterStack grows by allocating an array twice the size and copying every element into it, so the
+ * push that triggers it takes time proportional to the size of the stack, and for a moment both arrays
+ * are alive at once.  This stack never copies: pushing onto a full top chunk moves up to a new chunk,
+ * and popping the last element of a chunk moves back down.  Chunks come from and go back to a
+ * ChunkPool, so every push and pop takes bounded O(1) time, whatever the size of the stack.
+ *
+ * The chunk above the top one is kept when the stack moves down, and only given back to the pool when
+ * the stack moves down again, so a stack pushing and popping across a chunk boundary does not touch the
+ * pool at all.
+ *
+ * @param <E> Type of object the stack is holding
+ */
+public class SegmentedBetterStack<E> implements BetterStackInterface<E> {
+
+    private final ChunkPool pool;
+    private final int chunkSize;
+
+    //Chunk holding the top of the stack, and the number of items in it.  Only the bottom chunk is
+    //ever left empty; topChunk.next, if any, is an empty chunk kept for the next push
+    private ChunkPool.Chunk topChunk;
+    private int top;
+
+    private int size;
+
+
+    /**
+     * Constructs an empty stack with its own pool of ChunkPool.DEFAULT_CHUNK_SIZE-element chunks
+     */
+    public SegmentedBetterStack() {
+        this(new ChunkPool());
+    }
+
+    /**
+     * Constructs an empty stack that takes its chunks from the given pool
+     *
+     * @param pool pool to take chunks from and give them back to (only share it between structures used by the same thread)
+     */
+    public SegmentedBetterStack(ChunkPool pool) {
+        this.pool = pool;
+        chunkSize = pool.getChunkSize();
+        topChunk = pool.take();
+        top = 0;
+        size = 0;
+    }
+
+    /**
+     * Push an item onto the top of the stack
+     *
+     * @param item item to push
+     * @throws OutOfMemoryError if the underlying data structure cannot hold any more elements
+     */
+    @Override
+    public void push(E item) throws OutOfMemoryError {
+
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        if (top == chunkSize) {
+            moveUp();
+        }
+        topChunk.items[top++] = item;
+        size++;
+    }
+
+    /**
+     * Remove and return the top item on the stack
+     *
+     * @return the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E pop() {
+
+        if (size == 0) {
+            throw(new EmptyStackException());
+        }
+
+        E item = (E) topChunk.items[--top];
+        topChunk.items[top] = null;
+        size--;
+
+        if (top == 0 && topChunk.prev != null) {
+            moveDown();
+        }
+        return item;
+    }
+
+    /**
+     * Returns the top of the stack (does not remove it).
+     *
+     * @return the top of the stack
+     * @throws EmptyStackException if stack is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        if (size == 0) {
+            throw(new EmptyStackException());
+        }
+        return (E) topChunk.items[top - 1];
+    }
+
+    /**
+     * Pushes len items from src, starting at src[off], so that src[off + len - 1] ends up on top,
+     * copying them in with one System.arraycopy per chunk.
+     *
+     * @param src array holding the items to push
+     * @param off index in src of the first (bottom-most) item to push
+     * @param len number of items to push
+     * @throws NullPointerException if any of the items is null (nothing is pushed in that case)
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     * @throws OutOfMemoryError if the underlying data structure cannot hold any more elements
+     */
+    @Override
+    public void pushAll(E[] src, int off, int len) throws OutOfMemoryError {
+
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw (new NullPointerException());
+            }
+        }
+
+        while (len > 0) {
+            if (top == chunkSize) {
+                moveUp();
+            }
+            int step = Math.min(len, chunkSize - top);
+            System.arraycopy(src, off, topChunk.items, top, step);
+            top += step;
+            size += step;
+            off += step;
+            len -= step;
+        }
+    }
+
+    /**
+     * Pops up to n items and stores them in dst starting at dst[0], bottom-most first, so the old
+     * top of the stack ends up last.  pushAll(dst, 0, count) puts them back exactly as they were.
+     * The items are copied out with one System.arraycopy per chunk.
+     *
+     * @param dst array to store the popped items in
+     * @param n largest number of items to pop
+     * @return the number of items popped
+     * @throws IllegalArgumentException if n is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items popped
+     */
+    @Override
+    public int popN(E[] dst, int n) {
+
+        if (n < 0) {
+            throw (new IllegalArgumentException("n must not be negative: " + n));
+        }
+        int count = Math.min(n, size);
+        Objects.checkFromIndexSize(0, count, dst.length);
+
+        int left = count;
+        while (left > 0) {
+            int step = Math.min(left, top);
+            System.arraycopy(topChunk.items, top - step, dst, left - step, step);
+
+            //Drop references to the popped items so they can be garbage collected
+            for (int i = top - step; i < top; i++) {
+                topChunk.items[i] = null;
+            }
+            top -= step;
+            size -= step;
+            left -= step;
+
+            if (top == 0 && topChunk.prev != null) {
+                moveDown();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the stack is empty
+     *
+     * @return true if the stack is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of elements in the stack
+     *
+     * @return integer representing the number of elements in the stack
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves up to the chunk above the full top chunk, taking one from the pool if none is kept
+     */
+    private void moveUp() {
+        ChunkPool.Chunk next = topChunk.next;
+        if (next == null) {
+            next = pool.take();
+            next.prev = topChunk;
+            topChunk.next = next;
+        }
+        topChunk = next;
+        top = 0;
+    }
+
+    /**
+     * Moves down from the empty top chunk to the full chunk below it, keeping the empty chunk
+     * for the next push and giving the one kept above it (if any) back to the pool
+     */
+    private void moveDown() {
+        ChunkPool.Chunk empty = topChunk;
+        if (empty.next != null) {
+            pool.give(empty.next);
+            empty.next = null;
+        }
+        topChunk = empty.prev;
+        top = chunkSize;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(java.awt.Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the stack how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
@@ -0,0 +1,263 @@
+package CommonUtils;
+
+import java.awt.*;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @implNote Bounded, lock-free queue for exactly one producer thread and one consumer thread.
+ *
+ * Like BetterQueue, this is a circular array, but its capacity is fixed (rounded up to a power of
+ * two) and it never resizes.  The producer only ever writes the tail index and the consumer only
+ * ever writes the head index, so no locks or compare-and-set loops are needed: an item becomes
+ * visible to the consumer when the producer publishes the new tail with release semantics.
+ *
+ * The head and tail indices live in the same AtomicLongArray but 128 bytes apart, so the two
+ * threads do not keep stealing the same cache line from each other (false sharing).  Each side
+ * also keeps a private cached copy of the other side's index and only re-reads the shared one
+ * when the cached value says the queue is full (producer) or empty (consumer).
+ *
+ * add, addAll and offer may only be called from the producer thread; peek, remove and drainTo only
+ * from the consumer thread.  size and isEmpty may be called from either and return a snapshot.
+ *
+ * @param <E> the type of object this queue will be holding
+ */
+public class SpscBetterQueue<E> implements BetterQueueInterface<E> {
+
+    /**
+     * Distance in longs between the padded slots (16 longs = 128 bytes, two cache lines).
+     */
+    private static final int PAD = 16;
+
+    //Slots in indices: head is written by the consumer, tail by the producer
+    private static final int HEAD = PAD;
+    private static final int TAIL = 2 * PAD;
+
+    //Slots in caches: each is only touched by one thread
+    private static final int HEAD_CACHE = PAD;  //producer's copy of head
+    private static final int TAIL_CACHE = 2 * PAD;  //consumer's copy of tail
+
+    private final AtomicLongArray indices = new AtomicLongArray(3 * PAD);
+    private final long[] caches = new long[3 * PAD];
+
+    private final E[] queue;
+    private final int mask;
+
+
+    /**
+     * Constructs an empty queue holding at most capacity items (rounded up to a power of two)
+     *
+     * @param capacity the most items the queue can hold at once
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    @SuppressWarnings("unchecked")
+    public SpscBetterQueue(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw (new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity));
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        queue = (E[]) new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Add an item to the back of the queue, waiting for the consumer to make room if the queue is full.
+     * Producer thread only.
+     *
+     * @param item item to push
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void add(E item) {
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        int spins = 0;
+        while (!offer(item)) {
+            spins = Backoff.pause(spins);
+        }
+    }
+
+    /**
+     * Add an item to the back of the queue if there is room.  Producer thread only.
+     *
+     * @param item item to push
+     * @return true if the item was added, false if the queue was full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E item) {
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        long tail = indices.getPlain(TAIL);
+        if (tail - caches[HEAD_CACHE] > mask) {
+            caches[HEAD_CACHE] = indices.getAcquire(HEAD);
+            if (tail - caches[HEAD_CACHE] > mask) {
+                return false;
+            }
+        }
+        queue[(int) tail & mask] = item;
+        indices.setRelease(TAIL, tail + 1);
+        return true;
+    }
+
+    /**
+     * Adds len items from src, starting at src[off], to the back of the queue in order, waiting for
+     * room as needed.  The items are published to the consumer in batches (as many as fit at a time)
+     * with a single release store each, instead of one per item.  Producer thread only.
+     *
+     * @param src array holding the items to add
+     * @param off index in src of the first item to add
+     * @param len number of items to add
+     * @throws NullPointerException if any of the items is null (nothing is added in that case)
+     * @throws IndexOutOfBoundsException if off and len do not describe a range of src
+     */
+    @Override
+    public void addAll(E[] src, int off, int len) {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw (new NullPointerException());
+            }
+        }
+
+        long tail = indices.getPlain(TAIL);
+        int done = 0;
+        int spins = 0;
+        while (done < len) {
+            long free = (mask + 1) - (tail - caches[HEAD_CACHE]);
+            if (free == 0) {
+                caches[HEAD_CACHE] = indices.getAcquire(HEAD);
+                free = (mask + 1) - (tail - caches[HEAD_CACHE]);
+                if (free == 0) {
+                    spins = Backoff.pause(spins);
+                    continue;
+                }
+            }
+            int batch = (int) Math.min(free, len - done);
+            for (int i = 0; i < batch; i++) {
+                queue[(int) (tail + i) & mask] = src[off + done + i];
+            }
+            tail += batch;
+            done += batch;
+            indices.setRelease(TAIL, tail);
+            spins = 0;
+        }
+    }
+
+    /**
+     * Returns the front of the queue (does not remove it) or <code>null</code> if the queue is empty.
+     * Consumer thread only.
+     *
+     * @return front of the queue or <code>null</code> if the queue is empty
+     */
+    @Override
+    public E peek() {
+        long head = indices.getPlain(HEAD);
+        if (head >= caches[TAIL_CACHE]) {
+            caches[TAIL_CACHE] = indices.getAcquire(TAIL);
+            if (head >= caches[TAIL_CACHE]) {
+                return null;
+            }
+        }
+        return queue[(int) head & mask];
+    }
+
+    /**
+     * Returns and removes the front of the queue.  Consumer thread only.
+     *
+     * @return the head of the queue, or <code>null</code> if this queue is empty
+     */
+    @Override
+    public E remove() {
+        long head = indices.getPlain(HEAD);
+        if (head >= caches[TAIL_CACHE]) {
+            caches[TAIL_CACHE] = indices.getAcquire(TAIL);
+            if (head >= caches[TAIL_CACHE]) {
+                return null;
+            }
+        }
+        int slot = (int) head & mask;
+        E item = queue[slot];
+        queue[slot] = null;
+        indices.setRelease(HEAD, head + 1);
+        return item;
+    }
+
+    /**
+     * Removes up to max items that are already in the queue and stores them in dst, in queue order,
+     * starting at dst[0].  Does not wait for more items.  Consumer thread only.
+     *
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    @Override
+    public int drainTo(E[] dst, int max) {
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        long head = indices.getPlain(HEAD);
+        caches[TAIL_CACHE] = indices.getAcquire(TAIL);
+        int count = (int) Math.min(max, caches[TAIL_CACHE] - head);
+        Objects.checkFromIndexSize(0, count, dst.length);
+
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (head + i) & mask;
+            dst[i] = queue[slot];
+            queue[slot] = null;
+        }
+        indices.setRelease(HEAD, head + count);
+        return count;
+    }
+
+    /**
+     * Returns the number of elements in the queue.  If the other thread is active this is only a snapshot.
+     *
+     * @return integer representing the number of elements in the queue
+     */
+    @Override
+    public int size() {
+        //Read head first: it can only grow, so the result is never negative
+        long head = indices.getAcquire(HEAD);
+        long tail = indices.getAcquire(TAIL);
+        return (int) Math.max(0, tail - head);
+    }
+
+    /**
+     * Returns whether the queue is empty.  If the other thread is active this is only a snapshot.
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the most items the queue can hold at once
+     *
+     * @return the capacity of the queue
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the queue how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
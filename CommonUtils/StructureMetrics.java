@@ -0,0 +1,142 @@
+package CommonUtils;
+
+/**
+ * Counts what a queue or stack does with its backing array: how often it grows and shrinks,
+ * how many elements those resizes copy, the largest number of elements it has held, and how much
+ * memory its backing array(s) take up now.  Useful for telling whether a structure's capacity
+ * policy makes it resize over and over ("thrash") in a real workload.
+ *
+ * Metrics are off unless the JVM is started with -Dcommonutils.metrics=true.  ENABLED is a
+ * static final constant, so when it is false the JIT drops every "if (StructureMetrics.ENABLED ...)"
+ * check in the structures, and they run exactly as fast as without instrumentation.  When it is
+ * true, a structure only keeps metrics once it is given a name with its enableMetrics method,
+ * which registers them with StructureMetricsRegistry (and so over JMX).
+ *
+ * A structure updates its metrics from the one thread using it.  The counters are volatile, so a
+ * JMX thread always reads the latest value written (a long is never seen half written), without any
+ * locking on the structure's side; the counters are only written when they change, and a resize or
+ * a new peak size is rare next to the adds and removes themselves.  Different counters may be read
+ * either side of the same update, and a reset() from a JMX thread can be lost if it races with one.
+ */
+public class StructureMetrics implements StructureMetricsMBean {
+
+    /**
+     * Whether metrics are kept at all, read once from the system property "commonutils.metrics".
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("commonutils.metrics");
+
+    private final String name;
+    private final String type;
+
+    //Bytes taken up by one slot of the backing array(s), and by the array headers
+    private final int bytesPerSlot;
+    private final int overheadBytes;
+
+    //Written only by the thread using the structure, and read by JMX threads
+    private volatile long growCount;
+    private volatile long shrinkCount;
+    private volatile long elementsCopied;
+    private volatile int peakSize;
+    private volatile int capacity;
+
+
+    /**
+     * Constructs metrics for a structure (see StructureMetricsRegistry.register)
+     *
+     * @param name name of the structure
+     * @param type kind of structure
+     * @param bytesPerSlot bytes taken up by one slot of the backing array(s)
+     * @param arrays number of backing arrays
+     * @param capacity current capacity of the backing array(s)
+     */
+    StructureMetrics(String name, String type, int bytesPerSlot, int arrays, int capacity) {
+        this.name = name;
+        this.type = type;
+        this.bytesPerSlot = bytesPerSlot;
+        this.overheadBytes = 16 * arrays; //Array header, with compressed class pointers
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records the structure's size after elements were added
+     *
+     * @param size number of elements now in the structure
+     */
+    void sized(int size) {
+        if (size > peakSize) {
+            peakSize = size;
+        }
+    }
+
+    /**
+     * Records a resize of the backing array(s)
+     *
+     * @param newCapacity capacity after the resize
+     * @param copied number of elements copied to the new array(s)
+     */
+    void resized(int newCapacity, int copied) {
+        if (newCapacity > capacity) {
+            growCount++;
+        }
+        else {
+            shrinkCount++;
+        }
+        elementsCopied += copied;
+        capacity = newCapacity;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public long getGrowCount() {
+        return growCount;
+    }
+
+    @Override
+    public long getShrinkCount() {
+        return shrinkCount;
+    }
+
+    @Override
+    public long getElementsCopied() {
+        return elementsCopied;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return (long) capacity * bytesPerSlot + overheadBytes;
+    }
+
+    @Override
+    public void reset() {
+        growCount = 0;
+        shrinkCount = 0;
+        elementsCopied = 0;
+        peakSize = 0;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name + ": " + growCount + " grows, " + shrinkCount + " shrinks, "
+                + elementsCopied + " elements copied, peak size " + peakSize
+                + ", capacity " + capacity + " (" + getFootprintBytes() + " bytes)";
+    }
+}
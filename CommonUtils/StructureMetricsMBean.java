@@ -0,0 +1,69 @@
+package CommonUtils;
+
+/**
+ * Management interface of StructureMetrics, as seen over JMX (for example in JConsole or VisualVM,
+ * under the CommonUtils domain).
+ */
+public interface StructureMetricsMBean {
+
+    /**
+     * Returns the name the structure was registered under
+     *
+     * @return name of the structure
+     */
+    String getName();
+
+    /**
+     * Returns the kind of structure, such as "BetterQueue"
+     *
+     * @return kind of structure
+     */
+    String getType();
+
+    /**
+     * Returns the number of times the backing array grew
+     *
+     * @return number of grows
+     */
+    long getGrowCount();
+
+    /**
+     * Returns the number of times the backing array shrank
+     *
+     * @return number of shrinks
+     */
+    long getShrinkCount();
+
+    /**
+     * Returns the number of elements copied from one backing array to another by all resizes
+     *
+     * @return number of elements copied
+     */
+    long getElementsCopied();
+
+    /**
+     * Returns the largest number of elements the structure has held
+     *
+     * @return peak size
+     */
+    int getPeakSize();
+
+    /**
+     * Returns the current capacity of the backing array
+     *
+     * @return capacity in elements
+     */
+    int getCapacity();
+
+    /**
+     * Returns the current size of the backing array(s) in bytes
+     *
+     * @return footprint in bytes
+     */
+    long getFootprintBytes();
+
+    /**
+     * Sets the counters and the peak size back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,94 @@
+package CommonUtils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Keeps the StructureMetrics of every named structure, and publishes each one as an MBean on the
+ * platform MBean server, named "CommonUtils:type=<kind>,name=<name>".
+ *
+ * Registering a name that is already registered replaces the old metrics, so a structure that is
+ * created again for every run (such as a drone's pending requests) shows up as the latest one.
+ */
+public class StructureMetricsRegistry {
+
+    private static final HashMap<String, StructureMetrics> metrics = new HashMap<>();
+
+
+    private StructureMetricsRegistry() {
+    }
+
+    /**
+     * Creates metrics for a structure and publishes them under the given name
+     *
+     * @param name name to publish the metrics under
+     * @param type kind of structure, such as "BetterQueue"
+     * @param bytesPerSlot bytes taken up by one slot of the backing array(s)
+     * @param arrays number of backing arrays
+     * @param capacity current capacity of the backing array(s)
+     * @return the new metrics
+     */
+    static synchronized StructureMetrics register(String name, String type, int bytesPerSlot, int arrays, int capacity) {
+        unregister(name);
+
+        StructureMetrics result = new StructureMetrics(name, type, bytesPerSlot, arrays, capacity);
+        metrics.put(name, result);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(result, objectName(type, name));
+        } catch (JMException e) {
+            //Still kept in the registry; it just cannot be seen over JMX
+            System.err.println("Couldn't publish metrics for " + name + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Removes the metrics published under the given name, if any
+     *
+     * @param name name the metrics were published under
+     */
+    public static synchronized void unregister(String name) {
+        StructureMetrics old = metrics.remove(name);
+        if (old == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = objectName(old.getType(), name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Couldn't unpublish metrics for " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the metrics published under the given name
+     *
+     * @param name name the metrics were published under
+     * @return the metrics, or null if there are none
+     */
+    public static synchronized StructureMetricsMBean get(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Returns the metrics of every registered structure
+     *
+     * @return a snapshot of the registered metrics
+     */
+    public static synchronized List<StructureMetricsMBean> all() {
+        return (new ArrayList<>(metrics.values()));
+    }
+
+    private static ObjectName objectName(String type, String name) throws JMException {
+        return (new ObjectName("CommonUtils:type=" + type + ",name=" + ObjectName.quote(name)));
+    }
+}
@@ -0,0 +1,61 @@
+package CommonUtils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for a queue or stack moving its elements to a new backing array.
+ * The event's duration is the time the resize took.  Enabled by default whenever a recording is running;
+ * when none is, a resize only pays for a check that the JIT all but removes.
+ */
+@Name("CommonUtils.StructureResize")
+@Label("Structure Resize")
+@Category("Item Manager")
+@Description("A queue or stack moved its elements to a larger or smaller backing array")
+class StructureResizeEvent extends jdk.jfr.Event {
+
+    @Label("Structure")
+    String structure;
+
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Elements Copied")
+    int elementsCopied;
+
+
+    /**
+     * Starts timing a resize
+     *
+     * @param structure kind of structure, such as "BetterQueue"
+     * @param oldCapacity capacity before the resize
+     * @return the event, to be finished once the elements are copied
+     */
+    static StructureResizeEvent start(String structure, int oldCapacity) {
+        StructureResizeEvent event = new StructureResizeEvent();
+        event.structure = structure;
+        event.oldCapacity = oldCapacity;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops timing the resize, and records it if a recording wants it
+     *
+     * @param newCapacity capacity after the resize
+     * @param elementsCopied number of elements copied to the new array(s)
+     */
+    void finish(int newCapacity, int elementsCopied) {
+        end();
+        if (shouldCommit()) {
+            this.newCapacity = newCapacity;
+            this.elementsCopied = elementsCopied;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package CommonUtils;
+
+import java.awt.*;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @implNote Unbounded, lock-free queue that any number of threads may add to and remove from at once.
+ *
+ * The queue is a linked list of fixed-size segments (arrays).  Each segment has an add index and a
+ * remove index that threads claim slots with by fetch-and-add, which always succeeds, instead of a
+ * compare-and-set loop that has to retry under contention:
+ *   - a producer takes the next add index and stores its item in that slot if the slot is still empty
+ *   - a consumer takes the next remove index and swaps the slot's contents for a TAKEN marker
+ * If a consumer gets to a slot before its producer (the queue looked non-empty because the index was
+ * already taken), the consumer's marker makes the producer's store fail, and the producer simply
+ * tries again with the next index.  When a segment's indices run past its end, a new segment is
+ * linked on; the old one is dropped once consumers have moved past it and left for the garbage collector.
+ *
+ * add never waits and never fails.  size, isEmpty and peek return a snapshot: by the time they return,
+ * other threads may already have changed the queue.  When no other thread is active they are exact.
+ *
+ * @param <E> the type of object this queue will be holding
+ */
+public class UnboundedConcurrentBetterQueue<E> implements BetterQueueInterface<E> {
+
+    /**
+     * Number of slots per segment.
+     */
+    private static final int SEGMENT_SIZE = 1 << 10;
+
+    //Put in a slot by the consumer that claimed it
+    private static final Object TAKEN = new Object();
+
+    /**
+     * One segment of the queue
+     */
+    private static final class Segment {
+        //Number of segments before this one, to compute sizes across segments
+        final long index;
+
+        final AtomicReferenceArray<Object> items = new AtomicReferenceArray<>(SEGMENT_SIZE);
+        final AtomicInteger addIndex = new AtomicInteger();
+        final AtomicInteger removeIndex = new AtomicInteger();
+        final AtomicReference<Segment> next = new AtomicReference<>();
+
+        Segment(long index) {
+            this.index = index;
+        }
+
+        /**
+         * Creates a segment whose first slot already holds item, for the producer that links it on
+         */
+        Segment(long index, Object item) {
+            this(index);
+            items.setPlain(0, item);
+            addIndex.setPlain(1);
+        }
+    }
+
+    //Segment consumers remove from
+    private final AtomicReference<Segment> head;
+
+    //Segment producers add to
+    private final AtomicReference<Segment> tail;
+
+
+    /**
+     * Constructs an empty queue
+     */
+    public UnboundedConcurrentBetterQueue() {
+        Segment first = new Segment(0);
+        head = new AtomicReference<>(first);
+        tail = new AtomicReference<>(first);
+    }
+
+    /**
+     * Add an item to the back of the queue
+     *
+     * @param item item to push
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void add(E item) {
+        if (item == null) {
+            throw (new NullPointerException());
+        }
+        while (true) {
+            Segment last = tail.get();
+            int index = last.addIndex.getAndIncrement();
+
+            if (index >= SEGMENT_SIZE) { //Segment is used up; move on to (or create) the next one
+                if (last != tail.get()) {
+                    continue;
+                }
+                Segment next = last.next.get();
+                if (next == null) {
+                    Segment created = new Segment(last.index + 1, item);
+                    if (last.next.compareAndSet(null, created)) {
+                        tail.compareAndSet(last, created);
+                        return;
+                    }
+                }
+                else {
+                    tail.compareAndSet(last, next);
+                }
+                continue;
+            }
+
+            if (last.items.compareAndSet(index, null, item)) {
+                return;
+            }
+            //A consumer already marked this slot as taken; try the next one
+        }
+    }
+
+    /**
+     * Returns the front of the queue (does not remove it) or <code>null</code> if the queue is empty
+     *
+     * @return front of the queue or <code>null</code> if the queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (Segment segment = head.get(); segment != null; segment = segment.next.get()) {
+            int end = Math.min(segment.addIndex.get(), SEGMENT_SIZE);
+            for (int i = Math.min(segment.removeIndex.get(), SEGMENT_SIZE); i < end; i++) {
+                Object item = segment.items.get(i);
+                if (item != null && item != TAKEN) {
+                    return (E) item;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns and removes the front of the queue
+     *
+     * @return the head of the queue, or <code>null</code> if this queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove() {
+        while (true) {
+            Segment first = head.get();
+            if (first.removeIndex.get() >= first.addIndex.get() && first.next.get() == null) {
+                return null;
+            }
+
+            int index = first.removeIndex.getAndIncrement();
+            if (index >= SEGMENT_SIZE) { //Segment is used up; move on to the next one
+                Segment next = first.next.get();
+                if (next == null) {
+                    return null;
+                }
+                head.compareAndSet(first, next);
+                continue;
+            }
+
+            Object item = first.items.getAndSet(index, TAKEN);
+            if (item != null) {
+                return (E) item;
+            }
+            //Got here before the producer of this slot; it will try another slot
+        }
+    }
+
+    /**
+     * Removes up to max items from the front of the queue and stores them in dst, in the order they
+     * were removed, starting at dst[0].  Other consumers may remove items in between.
+     *
+     * @param dst array to store the removed items in
+     * @param max largest number of items to remove
+     * @return the number of items removed
+     * @throws IllegalArgumentException if max is negative
+     * @throws IndexOutOfBoundsException if dst is too small to hold the items removed
+     */
+    @Override
+    public int drainTo(E[] dst, int max) {
+        if (max < 0) {
+            throw (new IllegalArgumentException("max must not be negative: " + max));
+        }
+        int count = 0;
+        while (count < max && !isEmpty()) {
+            Objects.checkIndex(count, dst.length); //Check before removing so no item is lost
+            E item = remove();
+            if (item == null) {
+                break;
+            }
+            dst[count++] = item;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of elements in the queue.  If other threads are active this is only a snapshot.
+     *
+     * @return integer representing the number of elements in the queue
+     */
+    @Override
+    public int size() {
+        Segment first = head.get();
+        long removed = first.index * SEGMENT_SIZE + Math.min(first.removeIndex.get(), SEGMENT_SIZE);
+        Segment last = tail.get();
+        long added = last.index * SEGMENT_SIZE + Math.min(last.addIndex.get(), SEGMENT_SIZE);
+
+        //Slots skipped because a consumer got there first count as both added and removed
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, added - removed));
+    }
+
+    /**
+     * Returns whether the queue is empty.  If other threads are active this is only a snapshot.
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+     *
+     * @param g graphics object to draw on
+     */
+    @Override
+    public void draw(Graphics g) {
+        //DO NOT MODIFY NOR IMPLEMENT THIS FUNCTION
+        if(g != null) g.getColor();
+        //todo GRAPHICS DEVELOPER:: draw the queue how we discussed
+        //251 STUDENTS:: YOU ARE NOT THE GRAPHICS DEVELOPER!
+    }
+}
@@ -1,9 +1,22 @@
 package Drones;
 
-import CommonUtils.BetterQueue;
+import CommonUtils.AsyncNumberReader;
+import CommonUtils.BinaryTraceCursor;
+import CommonUtils.CheckpointFile;
+import CommonUtils.LongBetterQueue;
+import CommonUtils.LongBetterQueueInterface;
+import CommonUtils.LongCursor;
+import CommonUtils.NumberFileCursor;
+import CommonUtils.NumberPushDecoder;
+import CommonUtils.NumberTokenizer;
+import CommonUtils.OffHeapLongQueue;
+import CommonUtils.PipelinedLongCursor;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Manages everything regarding the cleaning of swords in our game.
@@ -13,6 +26,42 @@ import java.util.ArrayList;
  * the standard library.  Any other containers used must be ones you created.
  */
 public class CleanSwordManager implements CleanSwordManagerInterface {
+
+    /**
+     * Kind of simulation recorded in checkpoints of getCleaningTimesCheckpointed.
+     */
+    private static final byte CHECKPOINT_KIND = 'C';
+
+    /**
+     * Inputs with more requests than this keep their queues off the heap (see OffHeapLongQueue).
+     * Set with -Ddrones.offHeapThreshold=<requests>; the default is 16M requests (a 128 MiB array).
+     */
+    private static final long OFF_HEAP_THRESHOLD = Long.getLong("drones.offHeapThreshold", 1 << 24);
+
+    //Name the drones' metrics are published under, or null if they are not published
+    private String metricsName;
+
+    /**
+     * Publishes metrics for the queues of every drone this manager runs from now on under name
+     * (see LiveCleanSwordManager.enableMetrics).  Managers running at the same time, such as those of
+     * a DroneBatchRunner, need different names, or they replace each other's metrics.
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        metricsName = name;
+    }
+
+    /**
+     * Publishes the metrics of a new drone, if this manager's are published
+     */
+    private LiveCleanSwordManager named(LiveCleanSwordManager drone) {
+        if (metricsName != null) {
+            drone.enableMetrics(metricsName);
+        }
+        return drone;
+    }
+
     /**
      * Gets the cleaning times per the specifications.
      *
@@ -24,89 +73,617 @@ public class CleanSwordManager implements CleanSwordManagerInterface {
 
         ArrayList<CleanSwordTimes> cleaningTimes = new ArrayList<CleanSwordTimes>();
         try {
-            BufferedReader bf = new BufferedReader(new FileReader(filename));
+            getCleaningTimes(filename, (timeFilled, timeToFulfill) -> cleaningTimes.add(new CleanSwordTimes(timeFilled, timeToFulfill)));
+        } catch (IOException e) {
+            //This should never happen... uh oh o.o
+            System.err.println("ATTENTION TAs: Couldn't find test file: \"" + filename + "\":: " + e.getMessage());
+            System.exit(1);
+        }
+        return cleaningTimes;
+    }
 
-            String[] nmt = bf.readLine().split(" ");
+    /**
+     * Gets the cleaning times per the specifications, handing each one to sink as it is computed.
+     * The input may be a text file or a binary trace made from one (see TraceConverter).
+     *
+     * @param filename file to read input from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @throws IOException if the input file cannot be read
+     */
+    @Override
+    public void getCleaningTimes(String filename, CleanSwordTimesSink sink) throws IOException {
 
-            long n = Integer.parseInt(nmt[0]);
-            long m = Integer.parseInt(nmt[1]);
-            long t = Integer.parseInt(nmt[2]);
+        if (BinaryTraceCursor.isBinaryTrace(filename)) {
+            //A binary trace is decoded a block at a time, so there is nothing to gain from the queues
+            getCleaningTimesStreaming(filename, sink);
+            return;
+        }
 
-            BetterQueue<Long> timeReq = new BetterQueue<Long>();
-            BetterQueue<Long> timeNeed = new BetterQueue<Long>();
+        try (NumberTokenizer tokens = new NumberTokenizer(filename)) {
 
-            for (int i = 0; i < m; i++) {
-                if (i < n) {
-                    timeNeed.add(Long.parseLong(bf.readLine()));
+            long n = tokens.nextInt();
+            long m = tokens.nextInt();
+            long t = tokens.nextInt();
+            sink.expect(m);
+
+            //Timestamps are kept unboxed so filling the queues never allocates.  On the heap, both
+            //queues are sized from the header so they never have to grow; very large inputs go off
+            //the heap instead, where the queues grow a chunk at a time without copying and stay out
+            //of the garbage collector's way.  Only the first m durations are ever read; the swords
+            //after the first n take the default duration t
+            boolean offHeap = m > OFF_HEAP_THRESHOLD;
+            LongBetterQueueInterface timeReq = offHeap ? new OffHeapLongQueue() : new LongBetterQueue((int) m);
+            LongBetterQueueInterface timeNeed = offHeap ? new OffHeapLongQueue() : new LongBetterQueue((int) Math.min(n, m));
+
+            try {
+                for (int i = 0; i < m && i < n; i++) {
+                    timeNeed.add(tokens.nextLong());
                 }
-                else {
-                    timeNeed.add(t);
+
+                for (int i = 0; i < m; i++) {
+                    timeReq.add(tokens.nextLong());
+                }
+
+                simulate(n, m, t, timeNeed, timeReq, sink);
+            } finally {
+                if (offHeap) {
+                    ((OffHeapLongQueue) timeReq).close();
+                    ((OffHeapLongQueue) timeNeed).close();
                 }
             }
+        }
+    }
+
+    /**
+     * Gets the cleaning times per the specifications, without loading the input into memory.
+     *
+     * The input is memory-mapped and walked with two independent cursors: one over the
+     * cleaning durations and one over the request times, which start right after the durations.
+     * Swords beyond the n listed in the file get the default duration t on the fly, so apart from
+     * the returned list, memory use does not grow with the size of the file.  Binary traces are
+     * walked the same way, with the request cursor stepping over the durations' blocks undecoded.
+     *
+     * @param filename file to read input from
+     * @return the list of times requests were filled and times it took to fill them, as per the specifications
+     * @throws UncheckedIOException if the input file cannot be read
+     */
+    public ArrayList<CleanSwordTimes> getCleaningTimesStreaming(String filename) {
+
+        ArrayList<CleanSwordTimes> cleaningTimes = new ArrayList<CleanSwordTimes>();
+        try {
+            getCleaningTimesStreaming(filename, (timeFilled, timeToFulfill) -> cleaningTimes.add(new CleanSwordTimes(timeFilled, timeToFulfill)));
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+        return cleaningTimes;
+    }
+
+    /**
+     * Gets the cleaning times like getCleaningTimesStreaming(String), handing each one to sink
+     * as it is computed.  Together with a sink that does not keep the results, memory use is
+     * constant no matter how large the input is.
+     *
+     * @param filename file to read input from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @throws IOException if the input file cannot be read
+     */
+    public void getCleaningTimesStreaming(String filename, CleanSwordTimesSink sink) throws IOException {
+
+        try (NumberFileCursor durations = NumberFileCursor.open(filename);
+             NumberFileCursor requests = NumberFileCursor.open(filename)) {
+
+            long n = durations.remove();
+            long m = durations.remove();
+            long t = durations.remove();
+            sink.expect(m);
+
+            //Only the first m durations are ever read, so the requests start after min(n, m) of them
+            requests.skip(3 + Math.min(n, m));
+
+            simulate(n, m, t, durations, requests, sink);
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Gets the cleaning times like getCleaningTimes(String), timing each phase of the run in stats
+     * (see getCleaningTimes(String, CleanSwordTimesSink, SimulationStats))
+     *
+     * @param filename file to read input from
+     * @param stats receives the time spent in each phase and the work done by the drone
+     * @return the list of times requests were filled and times it took to fill them, as per the specifications
+     * @throws UncheckedIOException if the input file cannot be read
+     */
+    public ArrayList<CleanSwordTimes> getCleaningTimes(String filename, SimulationStats stats) {
+
+        ArrayList<CleanSwordTimes> cleaningTimes = new ArrayList<CleanSwordTimes>();
+        try {
+            getCleaningTimes(filename, (timeFilled, timeToFulfill) -> cleaningTimes.add(new CleanSwordTimes(timeFilled, timeToFulfill)), stats);
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+        return cleaningTimes;
+    }
+
+    /**
+     * Gets the cleaning times per the specifications, handing each one to sink, and fills in stats.
+     *
+     * To tell the phases apart, the run does them one after the other: the durations and request times
+     * are parsed into queues, every sword and request is fed to the drone (whose results are kept in a
+     * table), the requests still waiting at the end are filled, and finally the results are handed to sink.
+     * This keeps the whole input and all the results in memory, unlike getCleaningTimes(String,
+     * CleanSwordTimesSink), so it is meant for finding out why a run is slow.  The input is read the same
+     * way, so the results are the same.
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @param stats receives the time spent in each phase and the work done by the drone
+     * @throws IOException if the input file cannot be read
+     */
+    public void getCleaningTimes(String filename, CleanSwordTimesSink sink, SimulationStats stats) throws IOException {
+
+        stats.start("cleaning");
+
+        stats.begin(SimulationStats.Phase.PARSE);
+        long n;
+        long m;
+        long t;
+        LongBetterQueue durations;
+        LongBetterQueue requests;
+        //Read by the same reader as getCleaningTimes(String, CleanSwordTimesSink): the first min(n, m)
+        //durations (only the first m are ever used), then the m request times
+        if (BinaryTraceCursor.isBinaryTrace(filename)) {
+            try (BinaryTraceCursor in = new BinaryTraceCursor(filename)) {
+                n = in.remove();
+                m = in.remove();
+                t = in.remove();
+                durations = read(in, Math.min(n, m));
+                requests = read(in, m);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        else {
+            try (NumberTokenizer tokens = new NumberTokenizer(filename)) {
+                n = tokens.nextInt();
+                m = tokens.nextInt();
+                t = tokens.nextInt();
+                LongCursor in = tokens.asCursor();
+                durations = read(in, Math.min(n, m));
+                requests = read(in, m);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        int count = requests.size();
+        stats.end(durations.size() + count);
+        sink.expect(m);
+
+        CleanSwordTimesTable results = new CleanSwordTimesTable(count);
+        LiveCleanSwordManager drone = named(new LiveCleanSwordManager(t, results));
+        drone.setStats(stats);
 
-            for (int i = 0; i < m; i++) {
-                timeReq.add(Long.parseLong(bf.readLine()));
+        stats.begin(SimulationStats.Phase.SIMULATE);
+        for (int i = 0; i < count; i++) {
+            if (i < n) {
+                drone.addSword(durations.remove());
+            }
+            else {
+                drone.closeSwords(); //Every sword from here on takes t
             }
+            drone.submitRequest(requests.remove());
+        }
+        stats.end(count);
+
+        stats.begin(SimulationStats.Phase.UNWIND);
+        int outstanding = drone.outstanding();
+        drone.finish();
+        stats.end(outstanding);
 
-            long totalTime = 0;
+        stats.begin(SimulationStats.Phase.RESULTS);
+        for (int row = 0; row < results.size(); row++) {
+            sink.onFilled(results.getTimeFilled(row), results.getTimeToFulfill(row));
+        }
+        stats.end(results.size());
+    }
 
-            for (int i = 0; i < m; i++) {
-                //Variables to store data from queue
-                long requested;
-                long cleanliness;
+    /**
+     * Reads the next count numbers of a cursor into a queue
+     */
+    private static LongBetterQueue read(LongCursor in, long count) {
+        LongBetterQueue values = new LongBetterQueue((int) Math.max(0, count));
+        for (long i = 0; i < count; i++) {
+            values.add(in.remove());
+        }
+        return values;
+    }
 
-                //Variables to store output
-                long timeFilled;
-                long timeTaken;
+    /**
+     * Gets the cleaning times like getCleaningTimes(String) without blocking the calling thread
+     * (see getCleaningTimesAsync(String, CleanSwordTimesSink, Executor)), on the common ForkJoinPool.
+     * Unlike getCleaningTimes(String), an input that cannot be read fails the future instead of
+     * ending the program.
+     *
+     * @param filename file to read input from
+     * @return a future completed with the list of times requests were filled and times it took to fill them
+     */
+    public CompletableFuture<ArrayList<CleanSwordTimes>> getCleaningTimesAsync(String filename) {
+
+        ArrayList<CleanSwordTimes> cleaningTimes = new ArrayList<CleanSwordTimes>();
+        return getCleaningTimesAsync(filename, (timeFilled, timeToFulfill) -> cleaningTimes.add(new CleanSwordTimes(timeFilled, timeToFulfill)),
+                ForkJoinPool.commonPool()).thenApply(done -> cleaningTimes);
+    }
 
-                requested = timeReq.remove();
-                cleanliness = timeNeed.remove();
+    /**
+     * Gets the cleaning times per the specifications, handing each one to sink as it is computed,
+     * without blocking the calling thread.
+     *
+     * The input is read with an AsyncNumberReader: a few reads are kept in flight ahead of the one being
+     * decoded, and each duration and request is fed to a LiveCleanSwordManager as soon as the bytes holding
+     * it have arrived, so the simulation starts with the first buffer instead of after the whole file.  All
+     * of this, including the calls to sink, happens on executor threads, one at a time.  A binary trace is
+     * read with the blocking cursors of getCleaningTimes(String, CleanSwordTimesSink) on an executor
+     * thread instead.
+     *
+     * @param filename file to read input from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @param executor runs the decoding, the simulation and the sink
+     * @return a future that completes once every result has been handed to sink, or completes
+     *         exceptionally with the IOException (or other exception) that stopped the run
+     */
+    public CompletableFuture<Void> getCleaningTimesAsync(String filename, CleanSwordTimesSink sink, Executor executor) {
+        return AsyncNumberReader.read(filename, new CleaningFeed(sink, metricsName), () -> getCleaningTimes(filename, sink), executor);
+    }
 
-                totalTime += cleanliness;
+    /**
+     * Feeds the numbers of a cleaning input, as they are decoded, to a LiveCleanSwordManager: the
+     * first min(n, m) durations are added as swords, then the m requests are submitted
+     */
+    private static class CleaningFeed implements NumberPushDecoder.Receiver {
 
-                //If request happens when there are no clean swords
-                if (totalTime > requested) {
-                    timeFilled = totalTime;
-                    timeTaken = totalTime - requested;
+        private final CleanSwordTimesSink sink;
+        private final String metricsName;
 
-                    cleaningTimes.add(new CleanSwordTimes(timeFilled, timeTaken));
-                }
-                else { //Request happens after sword(s) are clean
-
-                    //Fill request on same time step
-                    timeFilled = requested;
-                    timeTaken = 0;
-                    cleaningTimes.add(new CleanSwordTimes(timeFilled, timeTaken));
-
-                    long swordNum = 1;
-                    //Continue cleaning swords in queue when there is time before the next request
-                    //1.) Check time of next request
-                    //2.) Check time needed for next sword in queue
-                    //3.) If there is enough time, fill request immediately and repeat checking process
-                    while ((i < m - 1) && swordNum < n && timeReq.peek() >= (totalTime + timeNeed.peek())) {
-                        i++;
-                        swordNum++;
-                        totalTime += timeNeed.remove();
-                        timeFilled = timeReq.remove();
-                        timeTaken = 0;
-
-                        cleaningTimes.add(new CleanSwordTimes(timeFilled, timeTaken));
-                    }
+        //Header values, then the drone once they are known
+        private long n;
+        private long m;
+        private long read;
+        private LiveCleanSwordManager drone;
 
-                    //If all swords in queue are clean, then the drone waits (set current time to next request)
-                    //Also ensures that there is another request
-                    if (swordNum >= n && (i < (m - 1) )) {
-                        totalTime = timeReq.peek();
-                    }
+        CleaningFeed(CleanSwordTimesSink sink, String metricsName) {
+            this.sink = sink;
+            this.metricsName = metricsName;
+            read = 0;
+            drone = null;
+        }
 
+        @Override
+        public boolean accept(long value) {
+            if (read == 0) {
+                n = value;
+            }
+            else if (read == 1) {
+                m = value;
+            }
+            else if (read == 2) {
+                sink.expect(m);
+                drone = new LiveCleanSwordManager(value, sink);
+                if (metricsName != null) {
+                    drone.enableMetrics(metricsName);
                 }
             }
+            else if (read < 3 + Math.min(n, m)) {
+                drone.addSword(value);
+            }
+            else {
+                drone.submitRequest(value);
+            }
+            read++;
+
+            if (read == 3 + Math.min(n, m) && n < m) {
+                drone.closeSwords(); //Every sword from here on takes t
+            }
+            return read < 3 + Math.min(n, m) + m;
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (read < 3 || read < 3 + Math.min(n, m) + m) {
+                throw (new EOFException("No numbers left to read"));
+            }
+            drone.finish();
+        }
+    }
 
+    /**
+     * Gets the cleaning times like getCleaningTimes(String), while background threads parse
+     * the input (see getCleaningTimesPipelined(String, CleanSwordTimesSink)).
+     *
+     * @param filename file to read input from
+     * @return the list of times requests were filled and times it took to fill them, as per the specifications
+     * @throws UncheckedIOException if the input file cannot be read
+     */
+    public ArrayList<CleanSwordTimes> getCleaningTimesPipelined(String filename) {
+
+        ArrayList<CleanSwordTimes> cleaningTimes = new ArrayList<CleanSwordTimes>();
+        try {
+            getCleaningTimesPipelined(filename, (timeFilled, timeToFulfill) -> cleaningTimes.add(new CleanSwordTimes(timeFilled, timeToFulfill)));
         } catch (IOException e) {
-            //This should never happen... uh oh o.o
-            System.err.println("ATTENTION TAs: Couldn't find test file: \"" + filename + "\":: " + e.getMessage());
-            System.exit(1);
+            throw (new UncheckedIOException(e));
         }
         return cleaningTimes;
     }
+
+    /**
+     * Gets the cleaning times per the specifications, handing each one to sink as it is computed.
+     *
+     * Two background threads decode the file, one for the cleaning durations and one for the
+     * request times, and hand the numbers over in chunks through lock-free single-producer/
+     * single-consumer queues (see PipelinedLongCursor).  The simulation on the calling thread
+     * only has to pull ready-made values, and parsing overlaps with it.
+     *
+     * @param filename file to read input from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @throws IOException if the input file cannot be read
+     */
+    public void getCleaningTimesPipelined(String filename, CleanSwordTimesSink sink) throws IOException {
+
+        try (NumberFileCursor durationsFile = NumberFileCursor.open(filename);
+             NumberFileCursor requestsFile = NumberFileCursor.open(filename)) {
+
+            long n = durationsFile.remove();
+            long m = durationsFile.remove();
+            long t = durationsFile.remove();
+            sink.expect(m);
+
+            //Only the first m durations are ever read, so the requests start after min(n, m) of them.
+            //The request thread skips the header and durations itself, so the caller does not wait for it
+            long durationCount = Math.min(n, m);
+
+            try (PipelinedLongCursor durations = new PipelinedLongCursor(durationsFile, 0, durationCount, "cleaning-durations-parser");
+                 PipelinedLongCursor requests = new PipelinedLongCursor(requestsFile, 3 + durationCount, m, "cleaning-requests-parser")) {
+
+                simulate(n, m, t, durations, requests, sink);
+            }
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Gets the cleaning times like getCleaningTimes(String), simulating on every core
+     * (see getCleaningTimesParallel(String, CleanSwordTimesSink)).
+     *
+     * @param filename file to read input from
+     * @return the list of times requests were filled and times it took to fill them, as per the specifications
+     * @throws UncheckedIOException if the input file cannot be read
+     */
+    public ArrayList<CleanSwordTimes> getCleaningTimesParallel(String filename) {
+
+        ArrayList<CleanSwordTimes> cleaningTimes = new ArrayList<CleanSwordTimes>();
+        try {
+            getCleaningTimesParallel(filename, (timeFilled, timeToFulfill) -> cleaningTimes.add(new CleanSwordTimes(timeFilled, timeToFulfill)));
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+        return cleaningTimes;
+    }
+
+    /**
+     * Gets the cleaning times per the specifications, handing each one to sink once all are computed.
+     *
+     * The input is loaded into arrays, and the simulation is split into chunks that run in parallel
+     * on the common fork-join pool, followed by a short sequential pass that fixes up the start of
+     * each chunk (see ParallelCleaningTimeline).  The results are exactly the same as getCleaningTimes.
+     * Small inputs make up a single chunk, which is simply the sequential simulation.
+     *
+     * @param filename file to read input from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @throws IOException if the input file cannot be read
+     */
+    public void getCleaningTimesParallel(String filename, CleanSwordTimesSink sink) throws IOException {
+
+        if (BinaryTraceCursor.isBinaryTrace(filename)) {
+            try (BinaryTraceCursor in = new BinaryTraceCursor(filename)) {
+                long n = in.remove();
+                int m = (int) in.remove();
+                long t = in.remove();
+                simulateParallel(n, m, t, in, sink);
+
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+
+        try (NumberTokenizer tokens = new NumberTokenizer(filename)) {
+
+            long n = tokens.nextInt();
+            int m = tokens.nextInt();
+            long t = tokens.nextInt();
+            simulateParallel(n, m, t, tokens.asCursor(), sink);
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Loads the durations and requests into arrays and runs the parallel cleaning simulation over them.
+     *
+     * @param n number of swords with their own cleaning duration
+     * @param m number of requests
+     * @param t cleaning duration of the swords after the first n
+     * @param input the min(n, m) durations followed by the m request times
+     * @param sink receives the result of each request
+     */
+    private void simulateParallel(long n, int m, long t, LongCursor input, CleanSwordTimesSink sink) {
+        sink.expect(m);
+
+        //Only the first m durations are ever read
+        long[] durations = new long[(int) Math.max(0, Math.min(n, m))];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = input.remove();
+        }
+        long[] requests = new long[Math.max(0, m)];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = input.remove();
+        }
+
+        //A few chunks per core, so cores that finish early can steal work
+        int chunkSize = Math.max(ParallelCleaningTimeline.MIN_CHUNK_SIZE,
+                requests.length / (4 * Runtime.getRuntime().availableProcessors()));
+        long[] filled = new ParallelCleaningTimeline(n, durations, t, requests, chunkSize).run();
+
+        for (int i = 0; i < filled.length; i++) {
+            sink.onFilled(filled[i], filled[i] - requests[i]);
+        }
+    }
+
+    /**
+     * Gets the cleaning times like getCleaningTimesStreaming(String, CleanSwordTimesSink), writing a
+     * checkpoint of the whole simulation every interval requests, so that a long run that is stopped
+     * part way can be resumed instead of started over.
+     *
+     * A checkpoint holds the drone's clock, the swords and requests waiting in its queues, the number
+     * of requests read from the input (which is also the number of swords read, up to n) and of results
+     * handed to sink, and where each of the two input cursors was in the file.  If checkpointFile already
+     * holds a checkpoint taken from this input, the run resumes from it: both input cursors seek straight
+     * to where the checkpoint was taken, without reading the input before it again, the drone
+     * is restored, and sink only receives the results after the ones already handed out, which are exactly
+     * those an uninterrupted run would have given.  If sink is Flushable it is flushed before each
+     * checkpoint, so a result writer opened with
+     * new CleanSwordTimesWriter(output, binary, CheckpointFile.resultsEmitted(checkpointFile))
+     * carries on its output file from the checkpoint.  The checkpoint is deleted once the run is done.
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @param checkpointFile file to write checkpoints to, and to resume from if it exists
+     * @param interval number of requests between checkpoints
+     * @throws IllegalArgumentException if interval is not positive
+     * @throws IOException if the input cannot be read, a checkpoint cannot be written, or checkpointFile
+     *                     holds a checkpoint that was not taken from this input
+     */
+    public void getCleaningTimesCheckpointed(String filename, CleanSwordTimesSink sink,
+                                             String checkpointFile, long interval) throws IOException {
+        if (interval < 1) {
+            throw (new IllegalArgumentException("interval must be positive: " + interval));
+        }
+
+        CheckpointFile checkpoint = CheckpointFile.read(checkpointFile);
+        if (checkpoint != null && !checkpoint.matches(CHECKPOINT_KIND, filename)) {
+            throw (new IOException("Checkpoint " + checkpointFile + " was not taken from " + filename));
+        }
+
+        try (NumberFileCursor durations = NumberFileCursor.open(filename);
+             NumberFileCursor requests = NumberFileCursor.open(filename)) {
+
+            long n = durations.remove();
+            long m = durations.remove();
+            long t = durations.remove();
+
+            CountingSink counter;
+            LiveCleanSwordManager drone;
+            long i;
+            if (checkpoint == null) {
+                sink.expect(m);
+                counter = new CountingSink(sink, 0);
+                drone = named(new LiveCleanSwordManager(t, counter));
+                i = 0;
+            }
+            else {
+                sink.expect(m - checkpoint.getResultsEmitted());
+                counter = new CountingSink(sink, checkpoint.getResultsEmitted());
+                drone = named(LiveCleanSwordManager.readFrom(checkpoint.getState(), counter));
+                i = checkpoint.getRequestsRead();
+            }
+
+            //Request i comes with sword i, and only the first min(n, m) swords are read
+            if (checkpoint == null) {
+                requests.skip(3 + Math.min(n, m));
+            }
+            else {
+                durations.seek(checkpoint.getInputPosition(0));
+                requests.seek(checkpoint.getInputPosition(1));
+            }
+
+            for (; i < m; i++) {
+                if (i < n) {
+                    drone.addSword(durations.remove());
+                }
+                else {
+                    drone.closeSwords(); //Every sword from here on takes t
+                }
+                drone.submitRequest(requests.remove());
+
+                if ((i + 1) % interval == 0) {
+                    if (sink instanceof Flushable) {
+                        ((Flushable) sink).flush();
+                    }
+                    CheckpointFile.write(checkpointFile, CHECKPOINT_KIND, filename, i + 1, counter.count,
+                            new long[] {durations.position(), requests.position()}, drone::writeTo);
+                }
+            }
+            drone.finish();
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (sink instanceof Flushable) {
+            ((Flushable) sink).flush();
+        }
+        CheckpointFile.delete(checkpointFile);
+    }
+
+    /**
+     * Hands results on to another sink, counting them
+     */
+    private static class CountingSink implements CleanSwordTimesSink {
+
+        private final CleanSwordTimesSink sink;
+        private long count;
+
+        CountingSink(CleanSwordTimesSink sink, long count) {
+            this.sink = sink;
+            this.count = count;
+        }
+
+        @Override
+        public void onFilled(long timeFilled, long timeToFulfill) {
+            sink.onFilled(timeFilled, timeToFulfill);
+            count++;
+        }
+    }
+
+    /**
+     * Runs the cleaning simulation over m requests by feeding every sword and request
+     * to a LiveCleanSwordManager.
+     *
+     * @param n number of swords with their own cleaning duration
+     * @param m number of requests
+     * @param t cleaning duration of the swords after the first n
+     * @param timeNeed time needed to clean each of the first min(n, m) swords, in order
+     * @param timeReq time of each request, in order
+     * @param sink receives the result of each request
+     */
+    private void simulate(long n, long m, long t, LongCursor timeNeed, LongCursor timeReq, CleanSwordTimesSink sink) {
+
+        LiveCleanSwordManager drone = named(new LiveCleanSwordManager(t, sink));
+
+        for (long i = 0; i < m; i++) {
+            //Request i is filled with sword i, so adding the sword first fills the request right away
+            if (i < n) {
+                drone.addSword(timeNeed.remove());
+            }
+            else {
+                drone.closeSwords(); //Every sword from here on takes t
+            }
+            drone.submitRequest(timeReq.remove());
+        }
+        drone.finish();
+    }
 }
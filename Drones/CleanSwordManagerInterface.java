@@ -1,5 +1,6 @@
 package Drones;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -40,6 +41,27 @@ public interface CleanSwordManagerInterface {
         }
     }
 
+    /**
+     * Receives the answer to each request as soon as it is known, instead of
+     * collecting every answer into a list first.
+     */
+    interface CleanSwordTimesSink {
+        /**
+         * Called once per request, in request order
+         * @param timeFilled time the request was filled
+         * @param timeToFulfill time it took to fill the request
+         */
+        void onFilled(long timeFilled, long timeToFulfill);
+
+        /**
+         * Called once before any results, with the number of requests read from the input's header.
+         * Sinks that store results can use it to size their storage up front.
+         * @param count number of results that will follow
+         */
+        default void expect(long count) {
+        }
+    }
+
     /**
      * Get the cleaning times as per the specifications.
      *
@@ -47,4 +69,13 @@ public interface CleanSwordManagerInterface {
      * @return the list of times requests were filled and times it took to fill them, as per the specifications
      */
     ArrayList<CleanSwordTimes> getCleaningTimes(String filename);
+
+    /**
+     * Get the cleaning times as per the specifications, handing each one to sink as it is computed.
+     *
+     * @param filename file to read input from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @throws IOException if the input file cannot be read
+     */
+    void getCleaningTimes(String filename, CleanSwordTimesSink sink) throws IOException;
 }
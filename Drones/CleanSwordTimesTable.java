@@ -0,0 +1,176 @@
+package Drones;
+
+import Drones.CleanSwordManagerInterface.CleanSwordTimes;
+import Drones.CleanSwordManagerInterface.CleanSwordTimesSink;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage for the answers to Story 1.
+ *
+ * Instead of one CleanSwordTimes object per request, the two fields are stored in
+ * parallel long[] columns, which take a quarter of the memory of an ArrayList of objects
+ * and can be scanned without chasing pointers.  CleanSwordTimes objects are only created
+ * when someone asks for them through get(int) or asList().
+ *
+ * The table is a CleanSwordTimesSink, so it can be filled directly by
+ * CleanSwordManager.getCleaningTimes(String, CleanSwordTimesSink), which sizes it from the
+ * number of requests in the input's header.
+ */
+public class CleanSwordTimesTable implements CleanSwordTimesSink {
+
+    /**
+     * Capacity used when no expected size is given
+     */
+    private final int INIT_CAPACITY = 8;
+
+    //Columns: row i is (timeFilled[i], timeToFulfill[i])
+    private long[] timeFilled;
+    private long[] timeToFulfill;
+    private int size;
+
+
+    /**
+     * Constructs an empty table
+     */
+    public CleanSwordTimesTable() {
+        this(0);
+    }
+
+    /**
+     * Constructs an empty table with room for expectedSize rows
+     *
+     * @param expectedSize number of rows the table should hold without growing
+     */
+    public CleanSwordTimesTable(int expectedSize) {
+        int capacity = Math.max(expectedSize, INIT_CAPACITY);
+        timeFilled = new long[capacity];
+        timeToFulfill = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * Appends a row to the table
+     *
+     * @param timeFilled time the request was filled
+     * @param timeToFulfill time it took to fill the request
+     */
+    @Override
+    public void onFilled(long timeFilled, long timeToFulfill) {
+        if (size == this.timeFilled.length) {
+            ensureCapacity(size + 1);
+        }
+        this.timeFilled[size] = timeFilled;
+        this.timeToFulfill[size] = timeToFulfill;
+        size++;
+    }
+
+    /**
+     * Makes room for count more rows
+     *
+     * @param count number of rows that will be appended
+     */
+    @Override
+    public void expect(long count) {
+        ensureCapacity((int) Math.min(size + count, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Grows the columns so they can hold at least minCapacity rows
+     *
+     * @param minCapacity number of rows the table must be able to hold
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= timeFilled.length) {
+            return;
+        }
+        int newCapacity = Math.max(minCapacity, timeFilled.length * 2);
+        if (newCapacity < 0) { //Doubling overflowed
+            newCapacity = minCapacity;
+        }
+        timeFilled = Arrays.copyOf(timeFilled, newCapacity);
+        timeToFulfill = Arrays.copyOf(timeToFulfill, newCapacity);
+    }
+
+    /**
+     * Returns the number of rows in the table
+     *
+     * @return the number of rows in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of rows the table can hold without growing
+     *
+     * @return the capacity of the columns
+     */
+    public int getCapacity() {
+        return timeFilled.length;
+    }
+
+    /**
+     * Returns the time the request in the given row was filled
+     *
+     * @param row index of the row
+     * @return the time the request was filled
+     * @throws IndexOutOfBoundsException if row is not in the table
+     */
+    public long getTimeFilled(int row) {
+        checkRow(row);
+        return timeFilled[row];
+    }
+
+    /**
+     * Returns the time it took to fill the request in the given row
+     *
+     * @param row index of the row
+     * @return the time it took to fill the request
+     * @throws IndexOutOfBoundsException if row is not in the table
+     */
+    public long getTimeToFulfill(int row) {
+        checkRow(row);
+        return timeToFulfill[row];
+    }
+
+    /**
+     * Returns the given row as a CleanSwordTimes object.  A new object is created on every call.
+     *
+     * @param row index of the row
+     * @return the row as a CleanSwordTimes
+     * @throws IndexOutOfBoundsException if row is not in the table
+     */
+    public CleanSwordTimes get(int row) {
+        checkRow(row);
+        return new CleanSwordTimes(timeFilled[row], timeToFulfill[row]);
+    }
+
+    /**
+     * Returns a read-only List view of the table.  Elements are created on access, and the
+     * view reflects rows appended after it was created.
+     *
+     * @return a List view of the rows
+     */
+    public List<CleanSwordTimes> asList() {
+        return new AbstractList<CleanSwordTimes>() {
+            @Override
+            public CleanSwordTimes get(int index) {
+                return CleanSwordTimesTable.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw (new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size));
+        }
+    }
+}
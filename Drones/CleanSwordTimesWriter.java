@@ -0,0 +1,127 @@
+package Drones;
+
+import CommonUtils.BinaryTraceWriter;
+import CommonUtils.NumberWriter;
+import Drones.CleanSwordManagerInterface.CleanSwordTimesSink;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the answers to Story 1 to a file as they are computed.
+ *
+ * The writer is a CleanSwordTimesSink, so it can be handed straight to
+ * CleanSwordManager.getCleaningTimes(String, CleanSwordTimesSink) (or a LiveCleanSwordManager),
+ * and no CleanSwordTimes object or String is ever created for a result.  Results are written
+ * either as text, one "timeFilled timeToFulfill" line per request (readable with NumberTokenizer),
+ * or as a binary trace with two columns (readable with BinaryTraceCursor), which is several
+ * times smaller.
+ *
+ * Because sink methods cannot throw IOException, write errors are thrown from onFilled as an
+ * UncheckedIOException wrapping the IOException.
+ *
+ * flush() forces everything written so far to disk, which is what the checkpointed modes call
+ * before each checkpoint; a run resumed from one opens the writer with the number of results to keep.
+ */
+public class CleanSwordTimesWriter implements CleanSwordTimesSink, Flushable, AutoCloseable {
+
+    //Exactly one of the two is used
+    private final NumberWriter text;
+    private final BinaryTraceWriter binary;
+
+
+    /**
+     * Creates (or replaces) the given file and opens a writer over it
+     *
+     * @param filename file to write the results to
+     * @param binary true to write a binary trace, false to write text
+     * @throws IOException if the file cannot be opened
+     */
+    public CleanSwordTimesWriter(String filename, boolean binary) throws IOException {
+        if (binary) {
+            this.text = null;
+            this.binary = new BinaryTraceWriter(filename, 0, 2);
+        }
+        else {
+            this.text = new NumberWriter(filename);
+            this.binary = null;
+        }
+    }
+
+    /**
+     * Opens a writer that carries on the given file after its first keepResults results, dropping
+     * everything after them.  This continues the output of a run resumed from a checkpoint, with
+     * keepResults = CheckpointFile.resultsEmitted(checkpointFile).
+     *
+     * @param filename file to write the results to
+     * @param binary true if the file is a binary trace, false if it is text
+     * @param keepResults number of results to keep
+     * @throws IOException if the file cannot be opened or has fewer than keepResults results
+     */
+    public CleanSwordTimesWriter(String filename, boolean binary, long keepResults) throws IOException {
+        if (binary) {
+            this.text = null;
+            this.binary = BinaryTraceWriter.append(filename, 0, 2, 2 * keepResults);
+        }
+        else {
+            this.text = NumberWriter.append(filename, keepResults);
+            this.binary = null;
+        }
+    }
+
+    /**
+     * Writes a result
+     *
+     * @param timeFilled time the request was filled
+     * @param timeToFulfill time it took to fill the request
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    @Override
+    public void onFilled(long timeFilled, long timeToFulfill) {
+        try {
+            if (text != null) {
+                text.writeLong(timeFilled);
+                text.writeChar(' ');
+                text.writeLong(timeToFulfill);
+                text.newLine();
+            }
+            else {
+                binary.add(timeFilled);
+                binary.add(timeToFulfill);
+            }
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+    }
+
+    /**
+     * Writes everything buffered and forces it to disk
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (text != null) {
+            text.sync();
+        }
+        else {
+            binary.sync();
+        }
+    }
+
+    /**
+     * Writes everything buffered and closes the file
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (text != null) {
+            text.close();
+        }
+        else {
+            binary.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package Drones;
+
+import CommonUtils.BinaryTraceCursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the drone managers over many input files at once.
+ *
+ * Each file is one task on a work-stealing ForkJoinPool with a bounded number of threads, and
+ * its results are collected in a CleanSwordTimesTable or ItemRetrievalTimesTable.  Unlike the
+ * single-file methods, a file that cannot be read or parsed never stops the run or the JVM:
+ * its error is recorded in its FileResult and the other files carry on.
+ *
+ * Before a file is handed to the pool it has to be admitted against a memory budget.  The memory
+ * a file needs is estimated from its size, or from the counts in its header if it is a binary trace
+ * (see estimateMemory), and files are only admitted while the estimates of the files in flight fit
+ * in the budget, so a batch of huge files runs fewer at a time instead of running out of heap.
+ * A single file larger than the whole budget still runs, on its own.
+ *
+ * Results are returned in the same order as the files were given.
+ */
+public class DroneBatchRunner {
+
+    /**
+     * The tables and the queues/stacks take about this many bytes of heap per byte of input text.
+     */
+    private static final long BYTES_PER_INPUT_BYTE = 4;
+
+    /**
+     * The same per number of the input, for a number that takes about 8 bytes of text.  A binary trace
+     * stores a number in about 2 bytes, so its size says much less about the heap it needs.
+     */
+    private static final long BYTES_PER_INPUT_VALUE = 8 * BYTES_PER_INPUT_BYTE;
+
+    /**
+     * Heap every file needs regardless of its size (read buffer, tables' initial arrays).
+     */
+    private static final long BYTES_PER_FILE = 1L << 17; // 128 KiB
+
+    /**
+     * Memory is counted in units of this many bytes, so the budget fits in a Semaphore's int permits.
+     */
+    private static final long BYTES_PER_PERMIT = 1L << 10; // 1 KiB
+
+    /**
+     * Result of running a manager on one file: either its table, or the error that stopped it.
+     *
+     * @param <T> type of the table
+     */
+    public static class FileResult<T> {
+        private final String filename;
+        private final T result;
+        private final Exception error;
+
+        FileResult(String filename, T result, Exception error) {
+            this.filename = filename;
+            this.result = result;
+            this.error = error;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * @return the results for the file, or null if it failed
+         */
+        public T getResult() {
+            return result;
+        }
+
+        /**
+         * @return the error that stopped the file, or null if it succeeded
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Work done on a single file
+     */
+    private interface FileJob<T> {
+        T run(String filename) throws IOException;
+    }
+
+    private final int parallelism;
+    private final long memoryBudget;
+
+
+    /**
+     * Constructs a runner that uses every core and half of the maximum heap
+     */
+    public DroneBatchRunner() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Constructs a runner
+     *
+     * @param parallelism largest number of files to process at the same time
+     * @param memoryBudget bytes of heap the files in flight may use together, by estimate
+     * @throws IllegalArgumentException if parallelism or memoryBudget is not positive
+     */
+    public DroneBatchRunner(int parallelism, long memoryBudget) {
+        if (parallelism < 1) {
+            throw (new IllegalArgumentException("parallelism must be positive: " + parallelism));
+        }
+        if (memoryBudget < 1) {
+            throw (new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget));
+        }
+        this.parallelism = parallelism;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Gets the cleaning times for every file
+     *
+     * @param filenames files to read input from
+     * @return one result per file, in the same order
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<FileResult<CleanSwordTimesTable>> getCleaningTimes(List<String> filenames) throws InterruptedException {
+        return run(filenames, filename -> {
+            CleanSwordTimesTable table = new CleanSwordTimesTable();
+            new CleanSwordManager().getCleaningTimes(filename, table);
+            return table;
+        });
+    }
+
+    /**
+     * Gets the cleaning times for every file in a directory, in order of their names
+     *
+     * @param directory directory holding the input files
+     * @return one result per file, in order of their names
+     * @throws IOException if the directory cannot be listed
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<FileResult<CleanSwordTimesTable>> getCleaningTimes(File directory) throws IOException, InterruptedException {
+        return getCleaningTimes(listFiles(directory));
+    }
+
+    /**
+     * Gets the retrieval times for every file
+     *
+     * @param filenames files to read input from
+     * @return one result per file, in the same order
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<FileResult<ItemRetrievalTimesTable>> getRetrievalTimes(List<String> filenames) throws InterruptedException {
+        return run(filenames, filename -> {
+            ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+            new ItemRequestManager().getRetrievalTimes(filename, table);
+            return table;
+        });
+    }
+
+    /**
+     * Gets the retrieval times for every file in a directory, in order of their names
+     *
+     * @param directory directory holding the input files
+     * @return one result per file, in order of their names
+     * @throws IOException if the directory cannot be listed
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<FileResult<ItemRetrievalTimesTable>> getRetrievalTimes(File directory) throws IOException, InterruptedException {
+        return getRetrievalTimes(listFiles(directory));
+    }
+
+    /**
+     * Returns the estimated heap needed to process a file
+     *
+     * @param filename the input file (text or binary trace)
+     * @return estimated bytes of heap
+     */
+    public static long estimateMemory(String filename) {
+        long length = new File(filename).length();
+        try {
+            if (BinaryTraceCursor.isBinaryTrace(filename)) {
+                return BYTES_PER_FILE + Math.max(countValues(filename, length) * BYTES_PER_INPUT_VALUE,
+                                                 length * BYTES_PER_INPUT_BYTE);
+            }
+        } catch (IOException | RuntimeException e) {
+            //Fall back on the size; running the file reports what is wrong with it
+        }
+        return BYTES_PER_FILE + length * BYTES_PER_INPUT_BYTE;
+    }
+
+    /**
+     * Returns how many numbers follow the header of a binary trace, from the counts in the header:
+     * every header value but the last (the drone count) is one ("n m" for cleaning, "numRequests"
+     * for retrieval).  Every number takes at least a byte, so a corrupt header cannot claim more
+     * than length of them.
+     */
+    private static long countValues(String filename, long length) throws IOException {
+        try (BinaryTraceCursor cursor = new BinaryTraceCursor(filename)) {
+            long values = 0;
+            for (int i = 0; i < cursor.getHeaderSize() - 1; i++) {
+                values = Math.min(values + Math.max(0, cursor.remove()), length);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Runs job on every file on a pool, admitting files against the memory budget
+     */
+    private <T> List<FileResult<T>> run(List<String> filenames, FileJob<T> job) throws InterruptedException {
+        int budgetPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / BYTES_PER_PERMIT));
+        Semaphore memory = new Semaphore(budgetPermits);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Future<FileResult<T>>> futures = new ArrayList<>(filenames.size());
+
+        try {
+            for (String filename : filenames) {
+                //A file bigger than the whole budget waits until nothing else is running
+                long estimate = (estimateMemory(filename) + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT;
+                int permits = (int) Math.min(estimate, budgetPermits);
+                memory.acquire(permits);
+
+                futures.add(pool.submit(() -> {
+                    try {
+                        return new FileResult<>(filename, job.run(filename), null);
+                    } catch (IOException | RuntimeException e) {
+                        return new FileResult<T>(filename, null, e);
+                    } finally {
+                        memory.release(permits);
+                    }
+                }));
+            }
+
+            List<FileResult<T>> results = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) { //Only Errors get here; everything else is caught in the task
+                    throw (Error) e.getCause();
+                }
+            }
+            return results;
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the regular files in a directory, in order of their names
+     */
+    private static List<String> listFiles(File directory) throws IOException {
+        File[] files = directory.listFiles(File::isFile);
+        if (files == null) {
+            throw (new IOException("Not a readable directory: " + directory));
+        }
+        Arrays.sort(files);
+
+        List<String> filenames = new ArrayList<>(files.length);
+        for (File file : files) {
+            filenames.add(file.getPath());
+        }
+        return filenames;
+    }
+}
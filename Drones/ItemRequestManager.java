@@ -1,11 +1,23 @@
 package Drones;
 
-import CommonUtils.BetterStack;
+import CommonUtils.AsyncNumberReader;
+import CommonUtils.BinaryTraceCursor;
+import CommonUtils.CheckpointFile;
+import CommonUtils.LongBetterQueue;
+import CommonUtils.LongCursor;
+import CommonUtils.NumberFileCursor;
+import CommonUtils.NumberPushDecoder;
+import CommonUtils.NumberTokenizer;
+import CommonUtils.PipelinedLongCursor;
 
-import java.io.FileReader;
+import java.io.EOFException;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Manages everything regarding the requesting of items in our game.
@@ -15,6 +27,36 @@ import java.util.Scanner;
  * from the standard library.  Any other containers used must be ones you created.
  */
 public class ItemRequestManager implements ItemRequestManagerInterface {
+
+    /**
+     * Kind of simulation recorded in checkpoints of getRetrievalTimesCheckpointed.
+     */
+    private static final byte CHECKPOINT_KIND = 'R';
+
+    //Name the drones' metrics are published under, or null if they are not published
+    private String metricsName;
+
+    /**
+     * Publishes metrics for the pending requests of every drone this manager runs from now on under
+     * name (see LiveItemRequestManager.enableMetrics).  Managers running at the same time, such as those
+     * of a DroneBatchRunner, need different names, or they replace each other's metrics.
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        metricsName = name;
+    }
+
+    /**
+     * Publishes the metrics of a new drone, if this manager's are published
+     */
+    private LiveItemRequestManager named(LiveItemRequestManager drone) {
+        if (metricsName != null) {
+            drone.enableMetrics(metricsName);
+        }
+        return drone;
+    }
+
     /**
      * Get the retrieval times as per the specifications
      *
@@ -26,127 +68,412 @@ public class ItemRequestManager implements ItemRequestManagerInterface {
 
         ArrayList<ItemRetrievalTimes> retrievalTimes = new ArrayList<>();
         try {
-            // as all of the inputs are on the same line, it is actually more efficient to use scanner's nextInt since
-            // with BufferedReader you would have to read in the entire line (possibly 10m integers long) at once
-            Scanner scan = new Scanner(new FileReader(filename));
+            getRetrievalTimes(filename, (index, timeFilled) -> retrievalTimes.add(new ItemRetrievalTimes(index, timeFilled)));
+        } catch (IOException e) {
+            //This should never happen... uh oh o.o
+            System.err.println("ATTENTION TAs: Couldn't find test file: \"" + filename + "\":: " + e.getMessage());
+            System.exit(1);
+        }
 
-            BetterStack<PendingRequest> pendingRequests = new BetterStack<>();
+        return retrievalTimes;
+    }
 
-            int numRequests = scan.nextInt();
-            int t = scan.nextInt();
+    /**
+     * Get the retrieval times as per the specifications, handing each one to sink as it is computed.
+     * The input may be a text file or a binary trace made from one (see TraceConverter).
+     *
+     * @param filename file to read input from
+     * @param sink receives the index of each request and the time it was filled
+     * @throws IOException if the input file cannot be read
+     */
+    @Override
+    public void getRetrievalTimes(String filename, ItemRetrievalTimesSink sink) throws IOException {
 
-            //Drone variables
-            long currentTime = 0;
-            long nextRequestTime;
-            int currentIndex = 0;
-            int timeLeft;
-            int distanceFromPlayer = 0;
+        if (BinaryTraceCursor.isBinaryTrace(filename)) {
+            try (BinaryTraceCursor requestTimes = new BinaryTraceCursor(filename)) {
 
-            currentTime = scan.nextInt(); //Set current time to time of first request:
+                int numRequests = (int) requestTimes.remove();
+                int t = (int) requestTimes.remove();
+                sink.expect(numRequests);
 
-            while(scan.hasNextInt()) {
-                nextRequestTime = scan.nextInt(); //Find time of next request:
-                timeLeft = (int) (nextRequestTime - currentTime); //Calculate time before next request:
+                simulate(numRequests, t, requestTimes, sink);
 
-                //Check where drone is when next request will happen
-                if (timeLeft <= t - distanceFromPlayer) { //Hasn't grabbed item
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
 
-                    //Put the request on the stack, distance from player = t, increase index
-                    pendingRequests.push(new PendingRequest(currentIndex++, t));
+        // as all of the inputs are on the same line (possibly 10m integers long), read them one token at a time
+        // straight from the file's bytes instead of reading whole lines or going through Scanner's regexes
+        try (NumberTokenizer tokens = new NumberTokenizer(filename)) {
 
-                    //Update drone:
-                    currentTime = nextRequestTime; //We are now at the next request
-                    distanceFromPlayer += timeLeft; //Update position (will always be less than t)
+            int numRequests = tokens.nextInt();
+            int t = tokens.nextInt();
+            sink.expect(numRequests);
 
-                }
-                else if (timeLeft < ((2 * t) - distanceFromPlayer)) { //Grabbed item (must drop)
+            simulate(numRequests, t, tokens.asCursor(), sink);
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Get the retrieval times like getRetrievalTimes(String), timing each phase of the run in stats
+     * (see getRetrievalTimes(String, ItemRetrievalTimesSink, SimulationStats))
+     *
+     * @param filename file to read input from
+     * @param stats receives the time spent in each phase and the work done by the drone
+     * @return the list of times requests were filled and index of the original request, per the specifications
+     * @throws UncheckedIOException if the input file cannot be read
+     */
+    public ArrayList<ItemRetrievalTimes> getRetrievalTimes(String filename, SimulationStats stats) {
+
+        ArrayList<ItemRetrievalTimes> retrievalTimes = new ArrayList<>();
+        try {
+            getRetrievalTimes(filename, (index, timeFilled) -> retrievalTimes.add(new ItemRetrievalTimes(index, timeFilled)), stats);
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+
+        return retrievalTimes;
+    }
+
+    /**
+     * Get the retrieval times as per the specifications, handing each one to sink, and fill in stats.
+     *
+     * To tell the phases apart, the run does them one after the other: the whole input is parsed into
+     * a queue, every request is fed to the drone (whose results are kept in a table), the requests still
+     * outstanding at the end are completed, and finally the results are handed to sink.  This keeps all
+     * the requests and results in memory, unlike getRetrievalTimes(String, ItemRetrievalTimesSink), so it
+     * is meant for finding out why a run is slow.  The input is read the same way, up to the end of the
+     * file whatever the header says, so the results are the same.
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @param sink receives the index of each request and the time it was filled
+     * @param stats receives the time spent in each phase and the work done by the drone
+     * @throws IOException if the input file cannot be read
+     */
+    public void getRetrievalTimes(String filename, ItemRetrievalTimesSink sink, SimulationStats stats) throws IOException {
+
+        stats.start("retrieval");
+
+        stats.begin(SimulationStats.Phase.PARSE);
+        int numRequests;
+        int t;
+        LongBetterQueue requestTimes;
+        if (BinaryTraceCursor.isBinaryTrace(filename)) {
+            try (BinaryTraceCursor in = new BinaryTraceCursor(filename)) {
+                numRequests = (int) in.remove();
+                t = (int) in.remove();
+                requestTimes = readAll(in, numRequests);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        else {
+            try (NumberTokenizer tokens = new NumberTokenizer(filename)) {
+                numRequests = tokens.nextInt();
+                t = tokens.nextInt();
+                requestTimes = readAll(tokens.asCursor(), numRequests);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        int count = requestTimes.size();
+        if (count == 0) { //There has to be a first request
+            throw (new EOFException("No numbers left to read"));
+        }
+        stats.end(count);
+        sink.expect(numRequests);
+
+        ItemRetrievalTimesTable results = new ItemRetrievalTimesTable(count);
+        LiveItemRequestManager drone = named(new LiveItemRequestManager(t, numRequests, results));
+        drone.setStats(stats);
+
+        stats.begin(SimulationStats.Phase.SIMULATE);
+        while (!requestTimes.isEmpty()) {
+            drone.submitRequest(requestTimes.remove());
+        }
+        stats.end(count);
+
+        stats.begin(SimulationStats.Phase.UNWIND);
+        int outstanding = drone.outstanding();
+        drone.finish();
+        stats.end(outstanding);
+
+        stats.begin(SimulationStats.Phase.RESULTS);
+        for (int row = 0; row < results.size(); row++) {
+            sink.onRetrieved(results.getIndex(row), results.getTimeFilled(row));
+        }
+        stats.end(results.size());
+    }
+
+    /**
+     * Reads every number left in a cursor into a queue, which starts out with room for expected of them
+     * and grows if there are more
+     */
+    private static LongBetterQueue readAll(LongCursor in, int expected) {
+        LongBetterQueue values = new LongBetterQueue(Math.max(0, expected));
+        while (!in.isEmpty()) {
+            values.add(in.remove());
+        }
+        return values;
+    }
+
+    /**
+     * Get the retrieval times like getRetrievalTimes(String), while a background thread parses
+     * the input (see getRetrievalTimesPipelined(String, ItemRetrievalTimesSink)).
+     *
+     * @param filename file to read input from
+     * @return the list of times requests were filled and index of the original request, per the specifications
+     * @throws UncheckedIOException if the input file cannot be read
+     */
+    public ArrayList<ItemRetrievalTimes> getRetrievalTimesPipelined(String filename) {
+
+        ArrayList<ItemRetrievalTimes> retrievalTimes = new ArrayList<>();
+        try {
+            getRetrievalTimesPipelined(filename, (index, timeFilled) -> retrievalTimes.add(new ItemRetrievalTimes(index, timeFilled)));
+        } catch (IOException e) {
+            throw (new UncheckedIOException(e));
+        }
+
+        return retrievalTimes;
+    }
+
+    /**
+     * Get the retrieval times as per the specifications, handing each one to sink as it is computed.
+     *
+     * The request times are decoded on a background thread and handed over in chunks through
+     * a lock-free single-producer/single-consumer queue (see PipelinedLongCursor), so parsing
+     * overlaps with the simulation running on the calling thread.
+     *
+     * @param filename file to read input from
+     * @param sink receives the index of each request and the time it was filled
+     * @throws IOException if the input file cannot be read
+     */
+    public void getRetrievalTimesPipelined(String filename, ItemRetrievalTimesSink sink) throws IOException {
+
+        try (NumberFileCursor file = NumberFileCursor.open(filename)) {
+
+            int numRequests = (int) file.remove();
+            int t = (int) file.remove();
+            sink.expect(numRequests);
+
+            try (PipelinedLongCursor requestTimes = new PipelinedLongCursor(file, 0, Long.MAX_VALUE, "retrieval-parser")) {
+                simulate(numRequests, t, requestTimes, sink);
+            }
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Get the retrieval times like getRetrievalTimes(String) without blocking the calling thread
+     * (see getRetrievalTimesAsync(String, ItemRetrievalTimesSink, Executor)), on the common ForkJoinPool.
+     * Unlike getRetrievalTimes(String), an input that cannot be read fails the future instead of
+     * ending the program.
+     *
+     * @param filename file to read input from
+     * @return a future completed with the list of times requests were filled and index of the original request
+     */
+    public CompletableFuture<ArrayList<ItemRetrievalTimes>> getRetrievalTimesAsync(String filename) {
+
+        ArrayList<ItemRetrievalTimes> retrievalTimes = new ArrayList<>();
+        return getRetrievalTimesAsync(filename, (index, timeFilled) -> retrievalTimes.add(new ItemRetrievalTimes(index, timeFilled)),
+                ForkJoinPool.commonPool()).thenApply(done -> retrievalTimes);
+    }
+
+    /**
+     * Get the retrieval times as per the specifications, handing each one to sink as it is computed,
+     * without blocking the calling thread.
+     *
+     * The input is read with an AsyncNumberReader: a few reads are kept in flight ahead of the one being
+     * decoded, and each request is fed to a LiveItemRequestManager as soon as the bytes holding it have
+     * arrived, so the simulation starts with the first buffer instead of after the whole file.  All of
+     * this, including the calls to sink, happens on executor threads, one at a time.  A binary trace is
+     * read with the blocking cursor of getRetrievalTimes(String, ItemRetrievalTimesSink) on an executor
+     * thread instead.
+     *
+     * @param filename file to read input from
+     * @param sink receives the index of each request and the time it was filled
+     * @param executor runs the decoding, the simulation and the sink
+     * @return a future that completes once every result has been handed to sink, or completes
+     *         exceptionally with the IOException (or other exception) that stopped the run
+     */
+    public CompletableFuture<Void> getRetrievalTimesAsync(String filename, ItemRetrievalTimesSink sink, Executor executor) {
+        return AsyncNumberReader.read(filename, new RetrievalFeed(sink, metricsName), () -> getRetrievalTimes(filename, sink), executor);
+    }
+
+    /**
+     * Feeds the numbers of a retrieval input, as they are decoded, to a LiveItemRequestManager
+     */
+    private static class RetrievalFeed implements NumberPushDecoder.Receiver {
+
+        private final ItemRetrievalTimesSink sink;
+        private final String metricsName;
 
-                    //Put request on stack
-                    pendingRequests.push(new PendingRequest(currentIndex++, (2 * t) - timeLeft - distanceFromPlayer));
+        //Header values, then the drone once they are known
+        private int numRequests;
+        private long read;
+        private LiveItemRequestManager drone;
 
-                    //Update drone:
-                    distanceFromPlayer = (2 * t) - timeLeft - distanceFromPlayer; //Update position
-                    currentTime = nextRequestTime; //At next request
+        RetrievalFeed(ItemRetrievalTimesSink sink, String metricsName) {
+            this.sink = sink;
+            this.metricsName = metricsName;
+            read = 0;
+            drone = null;
+        }
+
+        @Override
+        public boolean accept(long value) {
+            if (read == 0) {
+                numRequests = (int) value;
+            }
+            else if (read == 1) {
+                sink.expect(numRequests);
+                drone = new LiveItemRequestManager((int) value, numRequests, sink);
+                if (metricsName != null) {
+                    drone.enableMetrics(metricsName);
                 }
-                else { //Request can be completed
-
-                    //Complete request:
-                    timeLeft -= 2 * t - distanceFromPlayer;
-                    currentTime += 2 * t - distanceFromPlayer; //Update time it took to complete request:
-                    distanceFromPlayer = 0; //Drone is now at the player
-
-                    //Save retrieval to list
-                    retrievalTimes.add(new ItemRetrievalTimes(currentIndex++, currentTime));
-
-                    //If able, complete pending requests on stack:
-                    while (!pendingRequests.isEmpty() && timeLeft > 0) {
-                        //Pop a request off the stack
-                        PendingRequest temp = pendingRequests.pop();
-
-                        //Check to see if given request can be completed
-                        if (timeLeft < temp.distanceFromPlayer) { //Item can't even be grabbed
-                            //Update drone position and time
-                            distanceFromPlayer = timeLeft;
-                            timeLeft = 0;
-                            currentTime = nextRequestTime;
-
-                            //Put the pending request back on top of the stack and proceed
-                            pendingRequests.push(temp);
-                        }
-                        else if (timeLeft < 2 * temp.distanceFromPlayer) { //Item was grabbed and dropped again
-                            //Update drone position and time
-                            distanceFromPlayer = 2 * temp.distanceFromPlayer - timeLeft;
-                            timeLeft = 0;
-                            currentTime = nextRequestTime; //Go to next request
-
-                            //Update the position of the pending request and put it back on the stack
-                            temp.distanceFromPlayer = distanceFromPlayer;
-                            pendingRequests.push(temp);
-
-                        }
-                        else if (timeLeft >= 2 * temp.distanceFromPlayer) { //Can be completed
-
-                            //Complete request and add to list:
-                            currentTime += 2 * temp.distanceFromPlayer; //Update current time
-                            timeLeft -= 2 * temp.distanceFromPlayer; //Update time left
-                            retrievalTimes.add(new ItemRetrievalTimes(temp.reqNum, currentTime));
-                        }
-                    }
-                    if (pendingRequests.isEmpty()) {
-                        currentTime = nextRequestTime; //If all requests are complete, skip to next request time
+            }
+            else {
+                drone.submitRequest(value);
+            }
+            read++;
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (read < 3) { //The header and the first request (there has to be one)
+                throw (new EOFException("No numbers left to read"));
+            }
+            drone.finish();
+        }
+    }
+
+    /**
+     * Get the retrieval times like getRetrievalTimes(String, ItemRetrievalTimesSink), writing a
+     * checkpoint of the whole simulation every interval requests, so that a long run that is
+     * stopped part way can be resumed instead of started over.
+     *
+     * A checkpoint holds the drone (its time, position and current request), the stack of pending
+     * requests, the number of requests read from the input and of results handed to sink, and where the
+     * input cursor was in the file.  If checkpointFile already holds a checkpoint taken from this input,
+     * the run resumes from it: the input cursor seeks straight to where the checkpoint was taken, without
+     * reading the input before it again, the drone is restored, and sink only receives the results after
+     * the ones already handed out, which are exactly those an uninterrupted run would have given.  If sink
+     * is Flushable it is flushed before each checkpoint, so a result writer opened with
+     * new ItemRetrievalTimesWriter(output, binary, CheckpointFile.resultsEmitted(checkpointFile))
+     * carries on its output file from the checkpoint.  The checkpoint is deleted once the run is done.
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @param sink receives the index of each request and the time it was filled
+     * @param checkpointFile file to write checkpoints to, and to resume from if it exists
+     * @param interval number of requests between checkpoints
+     * @throws IllegalArgumentException if interval is not positive
+     * @throws IOException if the input cannot be read, a checkpoint cannot be written, or checkpointFile
+     *                     holds a checkpoint that was not taken from this input
+     */
+    public void getRetrievalTimesCheckpointed(String filename, ItemRetrievalTimesSink sink,
+                                              String checkpointFile, long interval) throws IOException {
+        if (interval < 1) {
+            throw (new IllegalArgumentException("interval must be positive: " + interval));
+        }
+
+        CheckpointFile checkpoint = CheckpointFile.read(checkpointFile);
+        if (checkpoint != null && !checkpoint.matches(CHECKPOINT_KIND, filename)) {
+            throw (new IOException("Checkpoint " + checkpointFile + " was not taken from " + filename));
+        }
+
+        try (NumberFileCursor requestTimes = NumberFileCursor.open(filename)) {
+
+            int numRequests = (int) requestTimes.remove();
+            int t = (int) requestTimes.remove();
+
+            CountingSink counter;
+            LiveItemRequestManager drone;
+            long submitted;
+            if (checkpoint == null) {
+                sink.expect(numRequests);
+                counter = new CountingSink(sink, 0);
+                drone = named(new LiveItemRequestManager(t, numRequests, counter));
+                drone.submitRequest(requestTimes.remove()); //First request (there has to be one)
+                submitted = 1;
+            }
+            else {
+                sink.expect(numRequests - checkpoint.getResultsEmitted());
+                counter = new CountingSink(sink, checkpoint.getResultsEmitted());
+                drone = named(LiveItemRequestManager.readFrom(checkpoint.getState(), numRequests, counter));
+                submitted = checkpoint.getRequestsRead();
+                requestTimes.seek(checkpoint.getInputPosition(0));
+            }
+
+            while (!requestTimes.isEmpty()) {
+                drone.submitRequest(requestTimes.remove());
+                submitted++;
+
+                if (submitted % interval == 0) {
+                    if (sink instanceof Flushable) {
+                        ((Flushable) sink).flush();
                     }
+                    CheckpointFile.write(checkpointFile, CHECKPOINT_KIND, filename, submitted, counter.count,
+                            new long[] {requestTimes.position()}, drone::writeTo);
                 }
             }
-            //Complete current request:
-            currentTime += 2 * t - distanceFromPlayer; //Update time it took to complete request:
-            distanceFromPlayer = 0; //Drone is now at the player
+            drone.finish();
 
-            retrievalTimes.add(new ItemRetrievalTimes(currentIndex++, currentTime));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
 
-            //Complete the rest of the requests:
-            while (!pendingRequests.isEmpty()) {
-                PendingRequest temp = pendingRequests.pop();
+        if (sink instanceof Flushable) {
+            ((Flushable) sink).flush();
+        }
+        CheckpointFile.delete(checkpointFile);
+    }
 
-                currentTime += temp.distanceFromPlayer * 2;
-                retrievalTimes.add(new ItemRetrievalTimes(temp.reqNum, currentTime));
-            }
+    /**
+     * Hands results on to another sink, counting them
+     */
+    private static class CountingSink implements ItemRetrievalTimesSink {
 
-        } catch (IOException e) {
-            //This should never happen... uh oh o.o
-            System.err.println("ATTENTION TAs: Couldn't find test file: \"" + filename + "\":: " + e.getMessage());
-            System.exit(1);
+        private final ItemRetrievalTimesSink sink;
+        private long count;
+
+        CountingSink(ItemRetrievalTimesSink sink, long count) {
+            this.sink = sink;
+            this.count = count;
         }
 
-        return retrievalTimes;
+        @Override
+        public void onRetrieved(int index, long timeFilled) {
+            sink.onRetrieved(index, timeFilled);
+            count++;
+        }
     }
 
-    class PendingRequest {
-        int reqNum; //Index of request (0 based)
-        int distanceFromPlayer; //Distance of item from player
+    /**
+     * Runs the retrieval simulation by feeding every request to a LiveItemRequestManager.
+     *
+     * @param numRequests number of requests, used to size the pending stack
+     * @param t time it takes the drone to reach an item
+     * @param requestTimes time of each request, in order
+     * @param sink receives the index of each request and the time it was filled
+     */
+    private void simulate(int numRequests, int t, LongCursor requestTimes, ItemRetrievalTimesSink sink) {
+
+        //There can never be more pending requests than requests, so sizing the pending stack
+        //from the header means it never resizes
+        LiveItemRequestManager drone = named(new LiveItemRequestManager(t, numRequests, sink));
 
-        public PendingRequest(int reqNum, int distanceFromPlayer) {
-            this.reqNum = reqNum;
-            this.distanceFromPlayer = distanceFromPlayer;
+        drone.submitRequest(requestTimes.remove()); //First request (there has to be one)
+        while (!requestTimes.isEmpty()) {
+            drone.submitRequest(requestTimes.remove());
         }
+        drone.finish();
     }
 }
@@ -1,5 +1,6 @@
 package Drones;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -45,6 +46,27 @@ public interface ItemRequestManagerInterface {
         // no setter for index because there should be no need to change it after construction of the object
     }
 
+    /**
+     * Receives each retrieval as soon as it is known, instead of
+     * collecting every retrieval into a list first.
+     */
+    interface ItemRetrievalTimesSink {
+        /**
+         * Called once per request, in the order the requests are filled
+         * @param index index of the original request
+         * @param timeFilled time the request was filled
+         */
+        void onRetrieved(int index, long timeFilled);
+
+        /**
+         * Called once before any results, with the number of requests read from the input's header.
+         * Sinks that store results can use it to size their storage up front.
+         * @param count number of results that will follow
+         */
+        default void expect(long count) {
+        }
+    }
+
     /**
      * Get the retrieval times as per the specifications
      *
@@ -52,4 +74,13 @@ public interface ItemRequestManagerInterface {
      * @return the list of times requests were filled and index of the original request, per the specifications
      */
     ArrayList<ItemRetrievalTimes> getRetrievalTimes(String filename);
+
+    /**
+     * Get the retrieval times as per the specifications, handing each one to sink as it is computed.
+     *
+     * @param filename file to read input from
+     * @param sink receives the index of each request and the time it was filled
+     * @throws IOException if the input file cannot be read
+     */
+    void getRetrievalTimes(String filename, ItemRetrievalTimesSink sink) throws IOException;
 }
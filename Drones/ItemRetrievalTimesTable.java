@@ -0,0 +1,175 @@
+package Drones;
+
+import Drones.ItemRequestManagerInterface.ItemRetrievalTimes;
+import Drones.ItemRequestManagerInterface.ItemRetrievalTimesSink;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage for the answers to Story 2.
+ *
+ * Instead of one ItemRetrievalTimes object per request, the two fields are stored in a
+ * parallel int[] and long[] column.  ItemRetrievalTimes objects are only created when
+ * someone asks for them through get(int) or asList().
+ *
+ * The table is an ItemRetrievalTimesSink, so it can be filled directly by
+ * ItemRequestManager.getRetrievalTimes(String, ItemRetrievalTimesSink), which sizes it from
+ * the number of requests in the input's header.
+ */
+public class ItemRetrievalTimesTable implements ItemRetrievalTimesSink {
+
+    /**
+     * Capacity used when no expected size is given
+     */
+    private final int INIT_CAPACITY = 8;
+
+    //Columns: row i is (index[i], timeFilled[i]), in the order the requests were filled
+    private int[] index;
+    private long[] timeFilled;
+    private int size;
+
+
+    /**
+     * Constructs an empty table
+     */
+    public ItemRetrievalTimesTable() {
+        this(0);
+    }
+
+    /**
+     * Constructs an empty table with room for expectedSize rows
+     *
+     * @param expectedSize number of rows the table should hold without growing
+     */
+    public ItemRetrievalTimesTable(int expectedSize) {
+        int capacity = Math.max(expectedSize, INIT_CAPACITY);
+        index = new int[capacity];
+        timeFilled = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * Appends a row to the table
+     *
+     * @param index index of the original request
+     * @param timeFilled time the request was filled
+     */
+    @Override
+    public void onRetrieved(int index, long timeFilled) {
+        if (size == this.index.length) {
+            ensureCapacity(size + 1);
+        }
+        this.index[size] = index;
+        this.timeFilled[size] = timeFilled;
+        size++;
+    }
+
+    /**
+     * Makes room for count more rows
+     *
+     * @param count number of rows that will be appended
+     */
+    @Override
+    public void expect(long count) {
+        ensureCapacity((int) Math.min(size + count, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Grows the columns so they can hold at least minCapacity rows
+     *
+     * @param minCapacity number of rows the table must be able to hold
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= index.length) {
+            return;
+        }
+        int newCapacity = Math.max(minCapacity, index.length * 2);
+        if (newCapacity < 0) { //Doubling overflowed
+            newCapacity = minCapacity;
+        }
+        index = Arrays.copyOf(index, newCapacity);
+        timeFilled = Arrays.copyOf(timeFilled, newCapacity);
+    }
+
+    /**
+     * Returns the number of rows in the table
+     *
+     * @return the number of rows in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of rows the table can hold without growing
+     *
+     * @return the capacity of the columns
+     */
+    public int getCapacity() {
+        return index.length;
+    }
+
+    /**
+     * Returns the index of the original request in the given row
+     *
+     * @param row index of the row
+     * @return the index of the original request
+     * @throws IndexOutOfBoundsException if row is not in the table
+     */
+    public int getIndex(int row) {
+        checkRow(row);
+        return index[row];
+    }
+
+    /**
+     * Returns the time the request in the given row was filled
+     *
+     * @param row index of the row
+     * @return the time the request was filled
+     * @throws IndexOutOfBoundsException if row is not in the table
+     */
+    public long getTimeFilled(int row) {
+        checkRow(row);
+        return timeFilled[row];
+    }
+
+    /**
+     * Returns the given row as an ItemRetrievalTimes object.  A new object is created on every call.
+     *
+     * @param row index of the row
+     * @return the row as an ItemRetrievalTimes
+     * @throws IndexOutOfBoundsException if row is not in the table
+     */
+    public ItemRetrievalTimes get(int row) {
+        checkRow(row);
+        return new ItemRetrievalTimes(index[row], timeFilled[row]);
+    }
+
+    /**
+     * Returns a read-only List view of the table.  Elements are created on access, and the
+     * view reflects rows appended after it was created.
+     *
+     * @return a List view of the rows
+     */
+    public List<ItemRetrievalTimes> asList() {
+        return new AbstractList<ItemRetrievalTimes>() {
+            @Override
+            public ItemRetrievalTimes get(int row) {
+                return ItemRetrievalTimesTable.this.get(row);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw (new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size));
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package Drones;
+
+import CommonUtils.LongBetterQueue;
+import Drones.CleanSwordManagerInterface.CleanSwordTimesSink;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The sword cleaning drone as a live, event-driven engine.
+ *
+ * Instead of reading every cleaning duration and request from a file, the game adds dirty swords
+ * and sword requests as they happen.  Request i is filled with sword i, so a request is answered
+ * as soon as both it and its sword are known: its result goes straight to the sink, following
+ * exactly the same rules as CleanSwordManager.getCleaningTimes, and nothing already answered is
+ * ever looked at again.  Once closeSwords() is called, every request without a sword of its own
+ * uses the default duration t, like the requests after the first n in an input file.
+ *
+ * Requests waiting for a sword and swords waiting for a request are queued; at most one of the two
+ * queues holds anything at a time, and every entry is added and removed once, so each event takes
+ * O(1) amortized work.
+ */
+public class LiveCleanSwordManager {
+
+    //Cleaning duration of the swords after the ones added
+    private final long t;
+
+    //Receives the time each request was filled and the time it took to fill it
+    private final CleanSwordTimesSink sink;
+
+    //Swords not used by a request yet, and requests without a sword yet
+    private final LongBetterQueue durations;
+    private final LongBetterQueue requests;
+
+    //Number of swords added, the n of an input file
+    private long swordCount;
+    private boolean swordsClosed;
+
+    //Drone variables: the drone's clock, and the number of requests in a row filled right away
+    private long totalTime;
+    private long swordNum;
+
+    //Number of requests submitted
+    private long requestCount;
+
+    private boolean finished;
+
+    //Counts the engine's work, if set
+    private SimulationStats stats;
+
+
+    /**
+     * Constructs an engine with no swords and no requests yet
+     *
+     * @param t cleaning duration of the swords after the ones added
+     * @param sink receives the time each request was filled and the time it took to fill it
+     */
+    public LiveCleanSwordManager(long t, CleanSwordTimesSink sink) {
+        this(t, new LongBetterQueue(), new LongBetterQueue(), sink);
+    }
+
+    private LiveCleanSwordManager(long t, LongBetterQueue durations, LongBetterQueue requests, CleanSwordTimesSink sink) {
+        this.t = t;
+        this.sink = sink;
+        this.durations = durations;
+        this.requests = requests;
+        swordCount = 0;
+        swordsClosed = false;
+        totalTime = 0;
+        swordNum = 0;
+        requestCount = 0;
+        finished = false;
+    }
+
+    /**
+     * Adds a dirty sword to the back of the queue
+     *
+     * @param duration time it takes to clean the sword
+     * @throws IllegalStateException if closeSwords() or finish() has been called
+     */
+    public void addSword(long duration) {
+        if (swordsClosed) {
+            throw (new IllegalStateException("No more swords can be added"));
+        }
+        swordCount++;
+
+        if (requests.isEmpty()) {
+            durations.add(duration);
+            countWaiting(durations.size());
+        }
+        else { //The oldest waiting request was waiting for exactly this sword
+            fill(requests.remove(), duration);
+            countQueueRead();
+        }
+    }
+
+    /**
+     * Tells the engine that no more swords will be added: requests without a sword of their own
+     * use the default duration t from now on, and any that were waiting are filled right away.
+     */
+    public void closeSwords() {
+        if (swordsClosed) {
+            return;
+        }
+        swordsClosed = true;
+
+        while (!requests.isEmpty()) {
+            fill(requests.remove(), t);
+            countQueueRead();
+        }
+    }
+
+    /**
+     * Submits a request for a clean sword made at the given time.  Requests are numbered from 0
+     * in the order they are submitted, and the sink is told about them in that order.
+     *
+     * @param time time the request was made
+     * @return the number of the request
+     * @throws IllegalStateException if finish() has been called
+     */
+    public long submitRequest(long time) {
+        if (finished) {
+            throw (new IllegalStateException("The session has finished"));
+        }
+        if (stats != null) {
+            stats.requests++;
+        }
+
+        if (!durations.isEmpty()) {
+            fill(time, durations.remove());
+            countQueueRead();
+        }
+        else if (swordsClosed) {
+            fill(time, t);
+        }
+        else { //Wait for its sword
+            requests.add(time);
+            countWaiting(requests.size());
+        }
+        return requestCount++;
+    }
+
+    /**
+     * Ends the session: closes the swords, which fills every request still waiting
+     */
+    public void finish() {
+        closeSwords();
+        finished = true;
+    }
+
+    /**
+     * Returns the number of requests submitted that have not been handed to the sink yet
+     *
+     * @return number of requests waiting for a sword
+     */
+    public int outstanding() {
+        return requests.size();
+    }
+
+    /**
+     * Has the engine count its work (requests, queue reads and the longest queue) in stats from now on
+     *
+     * @param stats where to count the work, or null to stop counting
+     */
+    public void setStats(SimulationStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Publishes metrics for the engine's queues as name + ".durations" and name + ".requests"
+     * (see LongBetterQueue.enableMetrics).  Engines running at the same time need different names,
+     * or they replace each other's metrics.
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        durations.enableMetrics(name + ".durations");
+        requests.enableMetrics(name + ".requests");
+    }
+
+    /**
+     * Writes the engine's whole state (the drone, the waiting swords and requests, and the counts)
+     * to out, so that readFrom can carry on exactly where this engine is.  The sink is not written.
+     *
+     * @param out where to write the state
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(t);
+        out.writeLong(swordCount);
+        out.writeBoolean(swordsClosed);
+        out.writeLong(totalTime);
+        out.writeLong(swordNum);
+        out.writeLong(requestCount);
+        out.writeBoolean(finished);
+        durations.writeTo(out);
+        requests.writeTo(out);
+    }
+
+    /**
+     * Reads an engine written by writeTo.  It behaves exactly like the engine that was written,
+     * but hands its results to the given sink.
+     *
+     * @param in where to read the state from
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @return the restored engine
+     * @throws IOException if in cannot be read or does not hold an engine
+     */
+    public static LiveCleanSwordManager readFrom(DataInput in, CleanSwordTimesSink sink) throws IOException {
+        long t = in.readLong();
+        long swordCount = in.readLong();
+        boolean swordsClosed = in.readBoolean();
+        long totalTime = in.readLong();
+        long swordNum = in.readLong();
+        long requestCount = in.readLong();
+        boolean finished = in.readBoolean();
+        LongBetterQueue durations = LongBetterQueue.readFrom(in);
+        LongBetterQueue requests = LongBetterQueue.readFrom(in);
+
+        LiveCleanSwordManager result = new LiveCleanSwordManager(t, durations, requests, sink);
+        result.swordCount = swordCount;
+        result.swordsClosed = swordsClosed;
+        result.totalTime = totalTime;
+        result.swordNum = swordNum;
+        result.requestCount = requestCount;
+        result.finished = finished;
+        return result;
+    }
+
+    private void countQueueRead() {
+        if (stats != null) {
+            stats.queueReads++;
+        }
+    }
+
+    private void countWaiting(int size) {
+        if (stats != null) {
+            stats.pending(size);
+        }
+    }
+
+    /**
+     * Fills the next request in order
+     *
+     * @param requested time of the request
+     * @param cleanliness time it takes to clean its sword
+     */
+    private void fill(long requested, long cleanliness) {
+        //If all swords in queue were clean, the drone waited for this request.  This can only
+        //happen once no more swords can come: before that swordNum is less than swordCount
+        if (swordNum > 0 && swordNum >= swordCount) {
+            totalTime = requested;
+            swordNum = 0;
+        }
+
+        totalTime += cleanliness;
+
+        //If request happens when there are no clean swords
+        if (totalTime > requested) {
+            sink.onFilled(totalTime, totalTime - requested);
+            swordNum = 0;
+        }
+        else { //Request happens after sword(s) are clean, fill it on the same time step
+            sink.onFilled(requested, 0);
+            swordNum++;
+        }
+    }
+}
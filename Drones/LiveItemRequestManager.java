@@ -0,0 +1,358 @@
+package Drones;
+
+import CommonUtils.IntPairBetterStack;
+import CommonUtils.CapacityPolicy;
+import Drones.ItemRequestManagerInterface.ItemRetrievalTimesSink;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The item retrieval drone as a live, event-driven engine.
+ *
+ * Instead of reading every request from a file, the game submits requests as they happen and
+ * tells the engine how far time has advanced.  The engine keeps the drone's state (the request it
+ * is working on, how far it is from the player and the stack of pending requests) and hands every
+ * retrieval to the sink as soon as it is certain, following exactly the same rules as
+ * ItemRequestManager.getRetrievalTimes.  Each event takes O(1) amortized work, since every request
+ * is pushed onto and popped off the pending stack at most once.
+ *
+ * A typical server calls submitRequest(now) for every request and advanceTo(now) once per tick.
+ * advanceTo(time) is a promise that no request will be submitted before time, which is what makes
+ * retrievals finishing by then certain.  finish() ends the session and completes everything left.
+ */
+public class LiveItemRequestManager {
+
+    //Time it takes the drone to reach an item
+    private final int t;
+
+    //Receives the index of each request and the time it was filled
+    private final ItemRetrievalTimesSink sink;
+
+    //Pending requests, stored as (reqNum, distanceFromPlayer) columns
+    private final IntPairBetterStack pendingRequests;
+
+    //Drone variables
+    private long currentTime;
+    private int distanceFromPlayer;
+
+    //Request the drone is working on, if any, and the index the next request will get
+    private boolean hasCurrent;
+    private int currentIndex;
+    private int nextIndex;
+
+    //No request may be submitted before this time (see advanceTo)
+    private long horizon;
+
+    private boolean started;
+    private boolean finished;
+
+    //Counts the engine's work, if set
+    private SimulationStats stats;
+
+
+    /**
+     * Constructs an engine with no requests yet
+     *
+     * @param t time it takes the drone to reach an item
+     * @param sink receives the index of each request and the time it was filled
+     */
+    public LiveItemRequestManager(int t, ItemRetrievalTimesSink sink) {
+        this(t, 0, sink);
+    }
+
+    /**
+     * Constructs an engine with no requests yet, with room for expectedRequests pending requests
+     *
+     * @param t time it takes the drone to reach an item
+     * @param expectedRequests number of requests expected, to size the pending stack (0 if unknown)
+     * @param sink receives the index of each request and the time it was filled
+     */
+    public LiveItemRequestManager(int t, int expectedRequests, ItemRetrievalTimesSink sink) {
+        this(t, new IntPairBetterStack(expectedRequests), sink);
+    }
+
+    private LiveItemRequestManager(int t, IntPairBetterStack pendingRequests, ItemRetrievalTimesSink sink) {
+        this.t = t;
+        this.sink = sink;
+        this.pendingRequests = pendingRequests;
+        currentTime = 0;
+        distanceFromPlayer = 0;
+        hasCurrent = false;
+        currentIndex = 0;
+        nextIndex = 0;
+        horizon = Long.MIN_VALUE;
+        started = false;
+        finished = false;
+    }
+
+    /**
+     * Submits a request made at the given time.  Requests are numbered from 0 in the order
+     * they are submitted, and the sink is told about retrievals by these numbers.
+     *
+     * @param time time the request was made
+     * @return the number of the request
+     * @throws IllegalArgumentException if time is before a time passed to advanceTo
+     * @throws IllegalStateException if finish() has been called
+     */
+    public int submitRequest(long time) {
+        if (finished) {
+            throw (new IllegalStateException("The session has finished"));
+        }
+        if (time < horizon) {
+            throw (new IllegalArgumentException("Request at " + time + " is before " + horizon));
+        }
+        if (stats != null) {
+            stats.requests++;
+        }
+
+        if (!started) {
+            started = true;
+            currentTime = time; //Set current time to time of first request
+            return startNext();
+        }
+
+        int timeLeft = (int) (time - currentTime); //Calculate time before this request
+
+        if (hasCurrent) {
+            //Check where drone is when this request happens
+            if (timeLeft <= t - distanceFromPlayer) { //Hasn't grabbed item
+
+                //Put the request on the stack, distance from player = t
+                pendingRequests.push(currentIndex, t);
+                countPush();
+
+                //Update drone:
+                currentTime = time; //We are now at this request
+                distanceFromPlayer += timeLeft; //Update position (will always be less than t)
+                return startNext();
+            }
+            else if (timeLeft < ((2 * t) - distanceFromPlayer)) { //Grabbed item (must drop)
+
+                //Put request on stack
+                pendingRequests.push(currentIndex, (2 * t) - timeLeft - distanceFromPlayer);
+                countPush();
+
+                //Update drone:
+                distanceFromPlayer = (2 * t) - timeLeft - distanceFromPlayer; //Update position
+                currentTime = time; //At this request
+                return startNext();
+            }
+
+            //Request can be completed
+            timeLeft -= 2 * t - distanceFromPlayer;
+            completeCurrent();
+        }
+
+        //If able, complete pending requests on stack:
+        while (!pendingRequests.isEmpty() && timeLeft > 0) {
+            //Look at the request on top of the stack
+            int pendingDistance = pendingRequests.peekSecond();
+
+            //Check to see if given request can be completed
+            if (timeLeft < pendingDistance) { //Item can't even be grabbed
+                //Update drone position and time
+                distanceFromPlayer = timeLeft;
+                timeLeft = 0;
+                currentTime = time;
+
+                //The pending request stays on top of the stack
+            }
+            else if (timeLeft < 2 * pendingDistance) { //Item was grabbed and dropped again
+                //Update drone position and time
+                distanceFromPlayer = 2 * pendingDistance - timeLeft;
+                timeLeft = 0;
+                currentTime = time; //Go to this request
+
+                //Update the position of the pending request in place
+                pendingRequests.setTopSecond(distanceFromPlayer);
+                if (stats != null) {
+                    stats.rePushes++;
+                }
+            }
+            else { //Can be completed
+                timeLeft -= 2 * pendingDistance; //Update time left
+                completePending();
+            }
+        }
+        if (pendingRequests.isEmpty()) {
+            currentTime = time; //If all requests are complete, skip to this request's time
+        }
+        return startNext();
+    }
+
+    /**
+     * Tells the engine that time has advanced to the given time, and that no request will be
+     * submitted before it.  Every retrieval that finishes by then is handed to the sink.
+     *
+     * @param time the current time
+     * @throws IllegalArgumentException if time is before a time passed to an earlier call
+     * @throws IllegalStateException if finish() has been called
+     */
+    public void advanceTo(long time) {
+        if (finished) {
+            throw (new IllegalStateException("The session has finished"));
+        }
+        if (time < horizon) {
+            throw (new IllegalArgumentException("Time went back from " + horizon + " to " + time));
+        }
+        horizon = time;
+
+        //The current request is done if the next request cannot come before the drone is back
+        //(nor exactly when it grabs the item, which only matters for t = 0)
+        if (hasCurrent && currentTime + 2 * t - distanceFromPlayer <= time
+                && currentTime + t - distanceFromPlayer < time) {
+            completeCurrent();
+        }
+
+        //Then the pending requests, for as long as the next request cannot interrupt them
+        if (!hasCurrent) {
+            while (!pendingRequests.isEmpty() && currentTime < time
+                    && currentTime + 2L * pendingRequests.peekSecond() <= time) {
+                completePending();
+            }
+        }
+    }
+
+    /**
+     * Ends the session: no more requests will come, so the current request and then every
+     * pending request is completed and handed to the sink.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        //Complete current request:
+        if (hasCurrent) {
+            completeCurrent();
+        }
+
+        //Complete the rest of the requests:
+        while (!pendingRequests.isEmpty()) {
+            completePending();
+        }
+    }
+
+    /**
+     * Returns the number of requests submitted that have not been handed to the sink yet
+     *
+     * @return number of outstanding requests
+     */
+    public int outstanding() {
+        return pendingRequests.size() + (hasCurrent ? 1 : 0);
+    }
+
+    /**
+     * Has the engine count its work (requests, pushes, re-pushes and the deepest pending stack) in stats from now on
+     *
+     * @param stats where to count the work, or null to stop counting
+     */
+    public void setStats(SimulationStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Publishes metrics for the engine's stack of pending requests as name + ".pendingRequests"
+     * (see IntPairBetterStack.enableMetrics).  Engines running at the same time need different names,
+     * or they replace each other's metrics.
+     *
+     * @param name name to publish the metrics under
+     */
+    public void enableMetrics(String name) {
+        pendingRequests.enableMetrics(name + ".pendingRequests");
+    }
+
+    /**
+     * Writes the engine's whole state (the drone, its pending requests and the request numbering)
+     * to out, so that readFrom can carry on exactly where this engine is.  The sink is not written.
+     *
+     * @param out where to write the state
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(t);
+        out.writeLong(currentTime);
+        out.writeInt(distanceFromPlayer);
+        out.writeBoolean(hasCurrent);
+        out.writeInt(currentIndex);
+        out.writeInt(nextIndex);
+        out.writeLong(horizon);
+        out.writeBoolean(started);
+        out.writeBoolean(finished);
+        pendingRequests.writeTo(out);
+    }
+
+    /**
+     * Reads an engine written by writeTo.  It behaves exactly like the engine that was written,
+     * but hands its retrievals to the given sink.
+     *
+     * @param in where to read the state from
+     * @param expectedRequests number of requests expected, to size the pending stack (0 if unknown)
+     * @param sink receives the index of each request and the time it was filled
+     * @return the restored engine
+     * @throws IOException if in cannot be read or does not hold an engine
+     */
+    public static LiveItemRequestManager readFrom(DataInput in, int expectedRequests, ItemRetrievalTimesSink sink) throws IOException {
+        int t = in.readInt();
+        long currentTime = in.readLong();
+        int distanceFromPlayer = in.readInt();
+        boolean hasCurrent = in.readBoolean();
+        int currentIndex = in.readInt();
+        int nextIndex = in.readInt();
+        long horizon = in.readLong();
+        boolean started = in.readBoolean();
+        boolean finished = in.readBoolean();
+        IntPairBetterStack pendingRequests = IntPairBetterStack.readFrom(in, expectedRequests, CapacityPolicy.DEFAULT);
+
+        LiveItemRequestManager result = new LiveItemRequestManager(t, pendingRequests, sink);
+        result.currentTime = currentTime;
+        result.distanceFromPlayer = distanceFromPlayer;
+        result.hasCurrent = hasCurrent;
+        result.currentIndex = currentIndex;
+        result.nextIndex = nextIndex;
+        result.horizon = horizon;
+        result.started = started;
+        result.finished = finished;
+        return result;
+    }
+
+    /**
+     * Makes the request just submitted the one the drone works on
+     */
+    private int startNext() {
+        hasCurrent = true;
+        currentIndex = nextIndex++;
+        return currentIndex;
+    }
+
+    private void countPush() {
+        if (stats != null) {
+            stats.pushes++;
+            stats.pending(pendingRequests.size());
+        }
+    }
+
+    /**
+     * Completes the current request
+     */
+    private void completeCurrent() {
+        currentTime += 2 * t - distanceFromPlayer; //Update time it took to complete request
+        distanceFromPlayer = 0; //Drone is now at the player
+        hasCurrent = false;
+
+        //Hand retrieval to the sink
+        sink.onRetrieved(currentIndex, currentTime);
+    }
+
+    /**
+     * Completes the request on top of the pending stack
+     */
+    private void completePending() {
+        currentTime += 2 * pendingRequests.peekSecond(); //Update current time
+        sink.onRetrieved(pendingRequests.peekFirst(), currentTime);
+        pendingRequests.pop();
+    }
+}
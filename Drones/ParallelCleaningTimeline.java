@@ -0,0 +1,206 @@
+package Drones;
+
+import java.util.stream.IntStream;
+
+/**
+ * Computes the cleaning timeline of CleanSwordManager on several cores.
+ *
+ * The sequential simulation can be written as one step per request on a state (T, s), where T is
+ * the drone's clock and s counts the swords cleaned since the drone last caught up:
+ *   - T += duration of sword i
+ *   - if T > request i, the request waits: it is filled at T, and s = 0
+ *   - otherwise it is filled right away at request i, s += 1, and once s reaches n (and another
+ *     request follows) the drone waits for the next request: T = request i + 1, s = 0
+ *
+ * Because of the counter s this is not a plain max-plus recurrence, so the steps cannot simply be
+ * composed in a parallel prefix scan.  As long as the drone never waits for a request, though, T is
+ * just the sum of the durations so far, and each request is filled at max(T, request time).  So:
+ *   1. the requests are split into chunks, and the durations of each chunk are summed in parallel
+ *   2. a prefix sum over the chunk sums gives every chunk a guessed starting T (s is guessed as 0)
+ *   3. every chunk is simulated from its guess at the same time (speculation), recording the state
+ *      it reached every CHECKPOINT_INTERVAL requests, and how many requests at its start were
+ *      filled right away
+ *   4. a sequential fix-up pass walks the chunks in order with the real starting state.  If T was
+ *      guessed right and the real s cannot reach n before the chunk's first waiting request (after
+ *      which s is 0 in both runs), the chunk is already right and is skipped in O(1).  Otherwise the
+ *      chunk is re-simulated from its real starting state until that state matches one of the
+ *      recorded checkpoints, after which the speculative results are exactly right, since every
+ *      step only depends on the state.
+ * The output is always identical to the sequential simulation.  Inputs where the drone often waits
+ * for requests make the guesses wrong, and then the fix-up re-simulates chunks until the two runs
+ * wait at the same request (from then on the state no longer depends on the past); in the worst case
+ * that is everything, which is still exact, just not faster.
+ */
+final class ParallelCleaningTimeline {
+
+    /**
+     * Smallest number of requests worth giving their own chunk.
+     */
+    static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Number of requests between recorded states of the speculative run.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1 << 6;
+
+    private final long n;
+    private final long[] durations;
+    private final long t;
+    private final long[] requests;
+    private final int m;
+
+    //Time each request was filled, the output of the simulation
+    private final long[] filled;
+
+    //Chunk k covers requests [bounds[k], bounds[k + 1])
+    private final int[] bounds;
+
+    //Guessed starting time of each chunk
+    private final long[] entryTimes;
+
+    //Speculative state before request bounds[k] + j * CHECKPOINT_INTERVAL, and after the last request
+    private final long[][] checkpointTimes;
+    private final long[][] checkpointCounts;
+    private final long[] exitTimes;
+    private final long[] exitCounts;
+
+    //Number of requests at the start of each chunk the speculative run filled right away
+    private final int[] leadingImmediate;
+
+
+    /**
+     * Prepares a timeline
+     *
+     * @param n number of swords with their own cleaning duration
+     * @param durations the first min(n, m) cleaning durations
+     * @param t cleaning duration of the swords after the first n
+     * @param requests time of each request, in order
+     * @param chunkSize number of requests per chunk
+     */
+    ParallelCleaningTimeline(long n, long[] durations, long t, long[] requests, int chunkSize) {
+        this.n = n;
+        this.durations = durations;
+        this.t = t;
+        this.requests = requests;
+        m = requests.length;
+        filled = new long[m];
+
+        int chunks = Math.max(1, (int) (((long) m + chunkSize - 1) / chunkSize));
+        bounds = new int[chunks + 1];
+        for (int k = 0; k <= chunks; k++) {
+            bounds[k] = (int) ((long) m * k / chunks);
+        }
+        entryTimes = new long[chunks];
+        checkpointTimes = new long[chunks][];
+        checkpointCounts = new long[chunks][];
+        exitTimes = new long[chunks];
+        exitCounts = new long[chunks];
+        leadingImmediate = new int[chunks];
+    }
+
+    /**
+     * Runs the simulation
+     *
+     * @return the time each request was filled (it took that time minus the request time to fill)
+     */
+    long[] run() {
+        int chunks = bounds.length - 1;
+
+        //Guess each chunk's starting time as if the drone never waited for a request
+        IntStream.range(0, chunks).parallel().forEach(k -> entryTimes[k] = durationSum(bounds[k], bounds[k + 1]));
+        long sum = 0;
+        for (int k = 0; k < chunks; k++) {
+            long chunkSum = entryTimes[k];
+            entryTimes[k] = sum;
+            sum += chunkSum;
+        }
+
+        IntStream.range(0, chunks).parallel().forEach(k -> simulate(k, entryTimes[k], 0, true));
+
+        //The first chunk started from the real starting state (0, 0), so its results are final
+        long[] state = {exitTimes[0], exitCounts[0]};
+        for (int k = 1; k < chunks; k++) {
+            int length = bounds[k + 1] - bounds[k];
+            if (state[0] == entryTimes[k] && state[1] + leadingImmediate[k] < n) {
+                //Same decisions as the speculative run, and the real s resets (or ends) before it reaches n
+                state = new long[] {exitTimes[k], leadingImmediate[k] == length ? state[1] + length : exitCounts[k]};
+            }
+            else {
+                state = simulate(k, state[0], state[1], false);
+            }
+        }
+        return filled;
+    }
+
+    /**
+     * Returns the total cleaning duration of the swords for requests [from, to)
+     */
+    private long durationSum(int from, int to) {
+        long sum = 0;
+        int end = (int) Math.min(to, Math.max(from, n));
+        for (int i = from; i < end; i++) {
+            sum += durations[i];
+        }
+        return sum + (to - end) * t;
+    }
+
+    /**
+     * Simulates chunk k from the given state.
+     *
+     * When speculating, the state is a guess, and the state every CHECKPOINT_INTERVAL requests
+     * and after the chunk is recorded.  Otherwise the state is the real one, and the simulation
+     * stops as soon as it reaches a recorded state, since from there on the speculative results
+     * are already right.
+     *
+     * @return the state after the chunk, as {time, count}
+     */
+    private long[] simulate(int k, long time, long count, boolean speculating) {
+        int from = bounds[k];
+        int to = bounds[k + 1];
+
+        if (speculating) {
+            int checkpoints = (to - from + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL;
+            checkpointTimes[k] = new long[checkpoints];
+            checkpointCounts[k] = new long[checkpoints];
+        }
+
+        int leading = -1;
+        for (int i = from; i < to; i++) {
+            if ((i - from) % CHECKPOINT_INTERVAL == 0) {
+                int checkpoint = (i - from) / CHECKPOINT_INTERVAL;
+                if (speculating) {
+                    checkpointTimes[k][checkpoint] = time;
+                    checkpointCounts[k][checkpoint] = count;
+                }
+                else if (checkpointTimes[k][checkpoint] == time && checkpointCounts[k][checkpoint] == count) {
+                    return new long[] {exitTimes[k], exitCounts[k]};
+                }
+            }
+
+            //One step of the simulation (see the class comment)
+            time += i < n ? durations[i] : t;
+            if (time > requests[i]) {
+                filled[i] = time;
+                count = 0;
+                if (leading < 0) {
+                    leading = i - from;
+                }
+            }
+            else {
+                filled[i] = requests[i];
+                count++;
+                if (count >= n && i < m - 1) {
+                    time = requests[i + 1];
+                    count = 0;
+                }
+            }
+        }
+
+        if (speculating) {
+            exitTimes[k] = time;
+            exitCounts[k] = count;
+            leadingImmediate[k] = leading < 0 ? to - from : leading;
+        }
+        return new long[] {time, count};
+    }
+}
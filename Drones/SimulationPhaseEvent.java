@@ -0,0 +1,27 @@
+package Drones;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one phase of a drone simulation (see SimulationStats).
+ * Enabled by default whenever a recording is running.
+ */
+@Name("Drones.SimulationPhase")
+@Label("Simulation Phase")
+@Category("Item Manager")
+@Description("A phase of an item retrieval or sword cleaning simulation")
+class SimulationPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Simulation")
+    String simulation;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Items")
+    @Description("Number of requests or results the phase handled")
+    long items;
+}
@@ -0,0 +1,562 @@
+package Drones;
+
+import CommonUtils.BinaryTraceCursor;
+import CommonUtils.BinaryTraceWriter;
+import Drones.CleanSwordManagerInterface.CleanSwordTimes;
+import Drones.CleanSwordManagerInterface.CleanSwordTimesSink;
+import Drones.ItemRequestManagerInterface.ItemRetrievalTimes;
+import Drones.ItemRequestManagerInterface.ItemRetrievalTimesSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Remembers the results of getCleaningTimes and getRetrievalTimes, so running the same input again
+ * hands back the results instead of parsing and simulating it again.
+ *
+ * Results are looked up by the identity of the input file:
+ *   - by default, its real path, size, last modified time and file key (the inode, where there is one),
+ *     which only takes a stat of the file, so a hit costs microseconds
+ *   - or, with hashContents, the SHA-256 of its contents, so copies of a file share their results and a
+ *     file rewritten with the same contents still hits; this reads the whole file on every lookup, which
+ *     is still much less work than simulating it
+ * plus the kind of simulation (the managers take no other parameters) and the version of the cache.  A
+ * file that changes while it is being simulated is not cached.
+ *
+ * Results are kept in memory in the compact tables (CleanSwordTimesTable, ItemRetrievalTimesTable), up to
+ * maxBytes of them, counting each table's whole capacity; the least recently used are dropped first, and
+ * results larger than the whole budget are never kept.  Tables read back from disk are sized from the
+ * number of rows in the file, so they hold no spare capacity.  With a disk directory, results are also
+ * written there as binary traces (see BinaryTraceWriter; about 2 bytes per result for typical inputs), named
+ * after a hash of their key, and read back when they are no longer in memory, even by another run of the
+ * program.  The directory is kept under maxDiskBytes by deleting the least recently used files.  The disk
+ * only ever saves work: a result that cannot be written there is still returned (and counted, see
+ * getDiskWriteFailures), and several programs may share the directory.
+ *
+ * The cache may be used by several threads.  Two threads missing on the same input at the same time both
+ * simulate it.
+ */
+public class SimulationResultCache {
+
+    /**
+     * Default memory budget: 64 MiB, about 4M cleaning results.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /**
+     * Default disk budget: 1 GiB.
+     */
+    public static final long DEFAULT_MAX_DISK_BYTES = 1L << 30;
+
+    /**
+     * Version of the cache, part of every key, so results cached by an older version are never used.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Extension of the result files in the disk directory.
+     */
+    private static final String DISK_SUFFIX = ".imrc";
+
+    /**
+     * Rough size of an entry apart from its results: the key, the entry and the table objects.
+     */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    //Kinds of simulation
+    private static final char CLEANING = 'C';
+    private static final char RETRIEVAL = 'R';
+
+    /**
+     * A table of results and the bytes it takes up.
+     */
+    private static final class Entry {
+        final Object table;
+        final long bytes;
+
+        Entry(Object table, long bytes) {
+            this.table = table;
+            this.bytes = bytes;
+        }
+    }
+
+    private final CleanSwordManager cleaningManager;
+    private final ItemRequestManager retrievalManager;
+
+    private final long maxBytes;
+    private final boolean hashContents;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+
+    //Entries in order of use, least recently used first, and the bytes they take up
+    private final LinkedHashMap<String, Entry> entries;
+    private long bytes;
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long diskWriteFailures;
+
+
+    /**
+     * Constructs an in-memory cache of DEFAULT_MAX_BYTES, keyed by path, size and last modified time
+     */
+    public SimulationResultCache() {
+        this(DEFAULT_MAX_BYTES, false, null, 0);
+    }
+
+    /**
+     * Constructs an in-memory cache
+     *
+     * @param maxBytes memory budget for results, in bytes
+     * @param hashContents true to key results by the SHA-256 of the input, false to key them by its path, size and last modified time
+     */
+    public SimulationResultCache(long maxBytes, boolean hashContents) {
+        this(maxBytes, hashContents, null, 0);
+    }
+
+    /**
+     * Constructs a cache that also keeps results on disk
+     *
+     * @param maxBytes memory budget for results, in bytes
+     * @param hashContents true to key results by the SHA-256 of the input, false to key them by its path, size and last modified time
+     * @param diskDirectory directory to keep results in (created if needed), or null for none
+     * @param maxDiskBytes disk budget for results, in bytes
+     * @throws IllegalArgumentException if a budget is negative
+     */
+    public SimulationResultCache(long maxBytes, boolean hashContents, String diskDirectory, long maxDiskBytes) {
+        if (maxBytes < 0 || maxDiskBytes < 0) {
+            throw (new IllegalArgumentException("Budgets must not be negative: " + maxBytes + ", " + maxDiskBytes));
+        }
+        cleaningManager = new CleanSwordManager();
+        retrievalManager = new ItemRequestManager();
+        this.maxBytes = maxBytes;
+        this.hashContents = hashContents;
+        this.diskDirectory = diskDirectory == null ? null : Paths.get(diskDirectory);
+        this.maxDiskBytes = maxDiskBytes;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        bytes = 0;
+    }
+
+    /**
+     * Gets the cleaning times of an input, from the cache if they are there
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @return a read-only list of the times requests were filled and times it took to fill them
+     * @throws IOException if the input file cannot be read
+     */
+    public List<CleanSwordTimes> getCleaningTimes(String filename) throws IOException {
+        return cleaningTable(filename).asList();
+    }
+
+    /**
+     * Gets the cleaning times of an input, from the cache if they are there, handing each one to sink
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @param sink receives the time each request was filled and the time it took to fill it
+     * @throws IOException if the input file cannot be read
+     */
+    public void getCleaningTimes(String filename, CleanSwordTimesSink sink) throws IOException {
+        CleanSwordTimesTable table = cleaningTable(filename);
+        sink.expect(table.size());
+        for (int row = 0; row < table.size(); row++) {
+            sink.onFilled(table.getTimeFilled(row), table.getTimeToFulfill(row));
+        }
+    }
+
+    /**
+     * Gets the retrieval times of an input, from the cache if they are there
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @return a read-only list of the times requests were filled and index of the original request
+     * @throws IOException if the input file cannot be read
+     */
+    public List<ItemRetrievalTimes> getRetrievalTimes(String filename) throws IOException {
+        return retrievalTable(filename).asList();
+    }
+
+    /**
+     * Gets the retrieval times of an input, from the cache if they are there, handing each one to sink
+     *
+     * @param filename file to read input from (text or a binary trace)
+     * @param sink receives the index of each request and the time it was filled
+     * @throws IOException if the input file cannot be read
+     */
+    public void getRetrievalTimes(String filename, ItemRetrievalTimesSink sink) throws IOException {
+        ItemRetrievalTimesTable table = retrievalTable(filename);
+        sink.expect(table.size());
+        for (int row = 0; row < table.size(); row++) {
+            sink.onRetrieved(table.getIndex(row), table.getTimeFilled(row));
+        }
+    }
+
+    private CleanSwordTimesTable cleaningTable(String filename) throws IOException {
+        Path input = Paths.get(filename);
+        String stat = stat(input);
+        String key = key(CLEANING, input, stat);
+
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (CleanSwordTimesTable) cached;
+        }
+
+        Path diskFile = diskFile(key);
+        if (diskFile != null && Files.exists(diskFile)) {
+            CleanSwordTimesTable table = new CleanSwordTimesTable();
+            if (readDisk(diskFile, table::expect, (first, second) -> table.onFilled(first, second))) {
+                keep(key, table, (long) table.getCapacity() * 2 * Long.BYTES);
+                return table;
+            }
+        }
+
+        CleanSwordTimesTable table = new CleanSwordTimesTable();
+        cleaningManager.getCleaningTimes(filename, table);
+        if (stat.equals(stat(input))) { //The input did not change while it was simulated
+            keep(key, table, (long) table.getCapacity() * 2 * Long.BYTES);
+            if (diskFile != null) {
+                writeDisk(diskFile, table.size(), row -> table.getTimeFilled(row), row -> table.getTimeToFulfill(row));
+            }
+        }
+        return table;
+    }
+
+    private ItemRetrievalTimesTable retrievalTable(String filename) throws IOException {
+        Path input = Paths.get(filename);
+        String stat = stat(input);
+        String key = key(RETRIEVAL, input, stat);
+
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (ItemRetrievalTimesTable) cached;
+        }
+
+        Path diskFile = diskFile(key);
+        if (diskFile != null && Files.exists(diskFile)) {
+            ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+            if (readDisk(diskFile, table::expect, (first, second) -> table.onRetrieved((int) first, second))) {
+                keep(key, table, (long) table.getCapacity() * (Integer.BYTES + Long.BYTES));
+                return table;
+            }
+        }
+
+        ItemRetrievalTimesTable table = new ItemRetrievalTimesTable();
+        retrievalManager.getRetrievalTimes(filename, table);
+        if (stat.equals(stat(input))) { //The input did not change while it was simulated
+            keep(key, table, (long) table.getCapacity() * (Integer.BYTES + Long.BYTES));
+            if (diskFile != null) {
+                writeDisk(diskFile, table.size(), row -> table.getIndex(row), row -> table.getTimeFilled(row));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the table cached under key, marking it as just used, or null (counting a miss)
+     */
+    private synchronized Object lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.table;
+    }
+
+    /**
+     * Keeps a table in memory, dropping the least recently used tables until the cache fits its budget
+     */
+    private synchronized void keep(String key, Object table, long resultBytes) {
+        long entryBytes = resultBytes + ENTRY_OVERHEAD + 2L * key.length();
+        if (entryBytes > maxBytes) {
+            return;
+        }
+
+        Entry old = entries.put(key, new Entry(table, entryBytes));
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        bytes += entryBytes;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Returns what has to stay the same for results cached from the input to still hold: its size,
+     * last modified time and file key
+     */
+    private static String stat(Path input) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(input, BasicFileAttributes.class);
+        return attributes.size() + "|" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + "|" + attributes.fileKey();
+    }
+
+    /**
+     * Returns the key of the results of a simulation of the given kind over the input
+     */
+    private String key(char kind, Path input, String stat) throws IOException {
+        String identity = hashContents ? "sha256:" + hex(sha256(input)) : input.toRealPath() + "|" + stat;
+        return VERSION + "|" + kind + "|" + identity;
+    }
+
+    private static byte[] sha256(Path input) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform has to provide SHA-256
+            throw (new IllegalStateException(e));
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the file in the disk directory holding the results cached under key, or null if there is no directory
+     */
+    private Path diskFile(String key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        byte[] hash = newDigest().digest(key.getBytes(StandardCharsets.UTF_8));
+        return diskDirectory.resolve(hex(Arrays.copyOf(hash, 16)) + DISK_SUFFIX);
+    }
+
+    /**
+     * Receives the rows of a result file.
+     */
+    private interface RowSink {
+        void onRow(long first, long second);
+    }
+
+    /**
+     * Reads a column of a table.
+     */
+    private interface Column {
+        long get(int row);
+    }
+
+    /**
+     * Reads the rows of a result file into sink, marking the file as just used.  The number of rows is
+     * handed to expect first, so the table can be sized for them.  A file that cannot be read (such as
+     * one cut short by a crash) is deleted.
+     *
+     * @return true if the file was read, false if it was not and has been deleted
+     */
+    private boolean readDisk(Path file, LongConsumer expect, RowSink sink) throws IOException {
+        try (BinaryTraceCursor cursor = new BinaryTraceCursor(file.toString())) {
+            if (cursor.getColumns() != 2) {
+                throw (new IOException("Not a result file: " + file));
+            }
+            long rows = cursor.remove();
+            if (rows < 0 || rows > Files.size(file)) { //Every row takes at least two bytes
+                throw (new IOException("Bad row count in result file: " + file));
+            }
+            expect.accept(rows);
+            for (long row = 0; row < rows; row++) {
+                sink.onRow(cursor.remove(), cursor.remove());
+            }
+            if (!cursor.isEmpty()) {
+                throw (new IOException("Trailing values in result file: " + file));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteFailure) {
+                //Tried again on the next lookup
+            }
+            return false;
+        }
+
+        synchronized (this) {
+            diskHits++;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            //Another thread or program trimmed the file after it was read, which is harmless
+        }
+        return true;
+    }
+
+    /**
+     * Writes rows to a result file: the number of rows as its header, then the rows in two columns.
+     * The file is written to a temporary file of its own in the directory and renamed into place, so
+     * readers never see half of it.  A failure is only counted, since the result is in memory anyway.
+     */
+    private void writeDisk(Path file, int rows, Column first, Column second) {
+        Path temp = null;
+        try {
+            Files.createDirectories(diskDirectory);
+            temp = Files.createTempFile(diskDirectory, "result", ".tmp");
+            try (BinaryTraceWriter out = new BinaryTraceWriter(temp.toString(), 1, 2)) {
+                out.add(rows);
+                for (int row = 0; row < rows; row++) {
+                    out.add(first.get(row));
+                    out.add(second.get(row));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            trimDisk();
+        } catch (IOException | UncheckedIOException e) {
+            synchronized (this) {
+                diskWriteFailures++;
+            }
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    //Nothing more to do; trimDisk never counts temporary files
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used result files until the directory fits its budget
+     */
+    private synchronized void trimDisk() throws IOException {
+        File[] files = diskDirectory.toFile().listFiles((dir, name) -> name.endsWith(DISK_SUFFIX));
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length && total > maxDiskBytes; i++) {
+            long length = files[i].length();
+            Files.deleteIfExists(files[i].toPath());
+            total -= length;
+        }
+    }
+
+    /**
+     * Drops every result kept in memory (results on disk are kept)
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the number of result sets kept in memory
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the memory taken up by the results kept, roughly
+     *
+     * @return number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of lookups answered from memory
+     *
+     * @return number of memory hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups not answered from memory that were answered from disk
+     *
+     * @return number of disk hits
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Returns the number of lookups not answered from memory (disk hits included)
+     *
+     * @return number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of result sets dropped from memory to fit the budget
+     *
+     * @return number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of results that could not be written to the disk directory
+     *
+     * @return number of failed disk writes
+     */
+    public synchronized long getDiskWriteFailures() {
+        return diskWriteFailures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SimulationResultCache{entries=" + entries.size() + ", bytes=" + bytes + ", hits=" + hits
+                + ", diskHits=" + diskHits + ", misses=" + misses + ", evictions=" + evictions
+                + ", diskWriteFailures=" + diskWriteFailures + '}';
+    }
+}
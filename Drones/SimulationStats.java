@@ -0,0 +1,194 @@
+package Drones;
+
+/**
+ * Where the time of a drone simulation went, and how much work it did.
+ *
+ * A SimulationStats is filled in by ItemRequestManager.getRetrievalTimes or
+ * CleanSwordManager.getCleaningTimes when one is passed in.  Those runs are split into phases
+ * that are timed separately:
+ *   - PARSE: reading the whole input into arrays
+ *   - SIMULATE: feeding every request to the drone (including the pending requests it
+ *     completes along the way)
+ *   - UNWIND: completing whatever is still outstanding once the input ends
+ *   - RESULTS: handing every result to the sink (building the list, for the list variants)
+ * Every phase is also recorded as a SimulationPhaseEvent, so it shows up in Java Flight Recorder
+ * recordings next to GC pauses and structure resizes (StructureResizeEvent).
+ *
+ * The counters are filled in by the live engines (see their setStats methods), and can be used
+ * with a live engine on its own too.
+ */
+public class SimulationStats {
+
+    /**
+     * Phases of a simulation run, in order
+     */
+    public enum Phase { PARSE, SIMULATE, UNWIND, RESULTS }
+
+    //Which simulation this is ("retrieval" or "cleaning"), for the events
+    private String simulation;
+
+    //Nanoseconds spent in each phase
+    private final long[] phaseNanos;
+
+    //Phase being timed, if any
+    private Phase phase;
+    private long phaseStart;
+    private SimulationPhaseEvent event;
+
+    //Work done by the drone
+    long requests;
+    long pushes;
+    long rePushes;
+    long queueReads;
+    int maxPendingDepth;
+
+
+    /**
+     * Constructs empty stats
+     */
+    public SimulationStats() {
+        simulation = "";
+        phaseNanos = new long[Phase.values().length];
+    }
+
+    /**
+     * Clears the stats for a new run of the given simulation
+     *
+     * @param simulation name of the simulation, such as "retrieval"
+     */
+    void start(String simulation) {
+        this.simulation = simulation;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = 0;
+        }
+        phase = null;
+        requests = 0;
+        pushes = 0;
+        rePushes = 0;
+        queueReads = 0;
+        maxPendingDepth = 0;
+    }
+
+    /**
+     * Starts timing a phase
+     *
+     * @param phase phase that starts now
+     */
+    void begin(Phase phase) {
+        this.phase = phase;
+        event = new SimulationPhaseEvent();
+        event.begin();
+        phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Stops timing the current phase
+     *
+     * @param items number of items (requests or results) the phase handled
+     */
+    void end(long items) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+        event.end();
+        if (event.shouldCommit()) {
+            event.simulation = simulation;
+            event.phase = phase.name();
+            event.items = items;
+            event.commit();
+        }
+        phase = null;
+        event = null;
+    }
+
+    /**
+     * Records that the number of requests waiting is now depth
+     */
+    void pending(int depth) {
+        if (depth > maxPendingDepth) {
+            maxPendingDepth = depth;
+        }
+    }
+
+    /**
+     * Returns the time spent in the given phase
+     *
+     * @param phase phase to look up
+     * @return time in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the time spent in all phases
+     *
+     * @return time in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of requests submitted to the drone
+     *
+     * @return number of requests
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of requests the retrieval drone put on its pending stack
+     *
+     * @return number of pushes
+     */
+    public long getPushes() {
+        return pushes;
+    }
+
+    /**
+     * Returns the number of times the retrieval drone put a pending request back on its stack
+     * (updated in place) after it grabbed that request's item and had to drop it again
+     *
+     * @return number of re-pushes
+     */
+    public long getRePushes() {
+        return rePushes;
+    }
+
+    /**
+     * Returns the number of swords and requests the cleaning drone took from its queues
+     *
+     * @return number of queue reads
+     */
+    public long getQueueReads() {
+        return queueReads;
+    }
+
+    /**
+     * Returns the largest number of requests waiting at once: on the retrieval drone's pending
+     * stack, or in the cleaning drone's queues
+     *
+     * @return maximum pending depth
+     */
+    public int getMaxPendingDepth() {
+        return maxPendingDepth;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(simulation);
+        for (Phase p : Phase.values()) {
+            result.append(String.format(" %s=%.3fms", p.name().toLowerCase(), phaseNanos[p.ordinal()] / 1e6));
+        }
+        result.append(" requests=").append(requests)
+                .append(" pushes=").append(pushes)
+                .append(" rePushes=").append(rePushes)
+                .append(" queueReads=").append(queueReads)
+                .append(" maxPendingDepth=").append(maxPendingDepth);
+        return result.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package Drones;
+
+import CommonUtils.BinaryTraceWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts a text input file of either drone manager into a binary trace, which both managers
+ * read in place of the text file (see CommonUtils.BinaryTraceCursor for the format).
+ *
+ * Usage: java Drones.TraceConverter clean|retrieve textFile binaryFile
+ */
+public class TraceConverter {
+
+    /**
+     * Number of header values of a sword cleaning input: "n m t".
+     */
+    public static final int CLEANING_HEADER_SIZE = 3;
+
+    /**
+     * Number of header values of an item retrieval input: "numRequests t".
+     */
+    public static final int RETRIEVAL_HEADER_SIZE = 2;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("clean") || args[0].equals("retrieve"))) {
+            System.err.println("Usage: java Drones.TraceConverter clean|retrieve textFile binaryFile");
+            System.exit(1);
+        }
+
+        long values = args[0].equals("clean") ? convertCleaningInput(args[1], args[2]) : convertRetrievalInput(args[1], args[2]);
+
+        long textSize = new File(args[1]).length();
+        long binarySize = new File(args[2]).length();
+        System.out.printf("%d values, %d bytes -> %d bytes (%.1fx smaller)%n",
+                values, textSize, binarySize, binarySize == 0 ? 0.0 : (double) textSize / binarySize);
+    }
+
+    /**
+     * Converts a sword cleaning input into a binary trace
+     *
+     * @param textFile input file to convert
+     * @param binaryFile file to write the binary trace to (replaced if it exists)
+     * @return the number of values written
+     * @throws IOException if either file cannot be read or written
+     */
+    public static long convertCleaningInput(String textFile, String binaryFile) throws IOException {
+        return BinaryTraceWriter.convert(textFile, binaryFile, CLEANING_HEADER_SIZE);
+    }
+
+    /**
+     * Converts an item retrieval input into a binary trace
+     *
+     * @param textFile input file to convert
+     * @param binaryFile file to write the binary trace to (replaced if it exists)
+     * @return the number of values written
+     * @throws IOException if either file cannot be read or written
+     */
+    public static long convertRetrievalInput(String textFile, String binaryFile) throws IOException {
+        return BinaryTraceWriter.convert(textFile, binaryFile, RETRIEVAL_HEADER_SIZE);
+    }
+}